@@ -3,11 +3,15 @@ package org.example.userservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "org.example.userservice")
 @EntityScan(basePackages = "org.example.userservice.domain")
 @EnableDiscoveryClient
+@EnableScheduling
+@ConfigurationPropertiesScan
 public class UserServiceApplication {
 
     public static void main(String[] args) {
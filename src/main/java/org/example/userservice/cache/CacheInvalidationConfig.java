@@ -0,0 +1,68 @@
+package org.example.userservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.userservice.messaging.KafkaProducerProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka clients of the invalidation topic. Every node consumes it in its own consumer group,
+ * so each invalidation reaches all replicas.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "enabled", matchIfMissing = true)
+public class CacheInvalidationConfig {
+
+    @Bean
+    public KafkaTemplate<String, UserCacheInvalidation> cacheInvalidationTemplate(ObjectMapper mapper,
+                                                                                 KafkaProducerProperties properties) {
+        Map<String, Object> configProperties = new HashMap<>();
+        configProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.bootstrapServers());
+
+        JsonSerializer<UserCacheInvalidation> jsonSerializer = new JsonSerializer<>(mapper);
+        jsonSerializer.setAddTypeInfo(false);
+
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProperties, new StringSerializer(), jsonSerializer));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserCacheInvalidation> cacheInvalidationListenerFactory(
+            ObjectMapper mapper, KafkaProducerProperties producerProperties, CacheInvalidationProperties properties,
+            Environment environment) {
+        Map<String, Object> configProperties = new HashMap<>();
+        configProperties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, producerProperties.bootstrapServers());
+        configProperties.put(ConsumerConfig.GROUP_ID_CONFIG, "user-cache-" + properties.nodeId());
+        configProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        configProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        JsonDeserializer<UserCacheInvalidation> jsonDeserializer = new JsonDeserializer<>(UserCacheInvalidation.class, mapper);
+        jsonDeserializer.setUseTypeHeaders(false);
+
+        ConcurrentKafkaListenerContainerFactory<String, UserCacheInvalidation> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(configProperties, new StringDeserializer(), jsonDeserializer));
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("user-cache-invalidation-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+        return factory;
+    }
+}
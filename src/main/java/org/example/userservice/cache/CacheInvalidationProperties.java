@@ -0,0 +1,28 @@
+package org.example.userservice.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Settings of the cross-node cache invalidation. Without an explicit {@code nodeId} every start
+ * gets a random one.
+ */
+@ConfigurationProperties(prefix = "app.cache.invalidation")
+public record CacheInvalidationProperties(
+        @DefaultValue("user-cache-invalidation")
+        String topic,
+
+        String nodeId,
+
+        @DefaultValue("5m")
+        Duration catchUpWindow
+) {
+    public CacheInvalidationProperties {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caffeine cache of {@code UserResponse} by id. Caffeine evicts by size with W-TinyLFU admission,
+ * so a burst of one-off reads does not push the hot set out. The manager is transaction aware:
+ * puts and evictions issued inside a transaction are applied only after it commits.
+ */
+@Configuration
+@EnableCaching
+public class UserCacheConfig {
+    public static final String USERS = "users";
+
+    @Bean
+    public CacheManager cacheManager(UserCacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USERS);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
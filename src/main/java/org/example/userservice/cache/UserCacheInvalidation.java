@@ -0,0 +1,7 @@
+package org.example.userservice.cache;
+
+/**
+ * Message on the invalidation topic: the node {@code nodeId} changed the user {@code userId}.
+ */
+public record UserCacheInvalidation(String nodeId, Long userId) {
+}
@@ -0,0 +1,91 @@
+package org.example.userservice.cache;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.example.userservice.events.UserChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Keeps the local users cache in step with other replicas. Committed changes are announced on the
+ * invalidation topic, and changes announced by peers evict the local entry; a node skips its own
+ * messages since its cache was already evicted by {@code UserService}.
+ * <p>
+ * When the consumer is reassigned after losing its partitions, it replays the topic from the
+ * moment they were revoked, as long as that is within {@code catchUpWindow}. After a longer gap
+ * the whole cache is cleared instead.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "enabled", matchIfMissing = true)
+public class UserCacheInvalidator implements ConsumerSeekAware {
+    private final Logger logger = LoggerFactory.getLogger(UserCacheInvalidator.class);
+
+    private final KafkaTemplate<String, UserCacheInvalidation> cacheInvalidationTemplate;
+    private final CacheInvalidationProperties properties;
+    private final Cache cache;
+
+    private static final long CLOCK_SKEW_MILLIS = 1000;
+
+    private volatile long revokedAt;
+
+    public UserCacheInvalidator(KafkaTemplate<String, UserCacheInvalidation> cacheInvalidationTemplate,
+                                CacheInvalidationProperties properties, CacheManager cacheManager) {
+        this.cacheInvalidationTemplate = cacheInvalidationTemplate;
+        this.properties = properties;
+        this.cache = cacheManager.getCache(UserCacheConfig.USERS);
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        cacheInvalidationTemplate.send(properties.topic(), String.valueOf(event.userId()),
+                        new UserCacheInvalidation(properties.nodeId(), event.userId()))
+                .whenComplete((result, exception) -> {
+                    if (exception != null) {
+                        logger.warn("Cache invalidation was not sent: userId={}", event.userId(), exception);
+                    }
+                });
+    }
+
+    @KafkaListener(topics = "${app.cache.invalidation.topic:user-cache-invalidation}",
+            containerFactory = "cacheInvalidationListenerFactory")
+    public void onInvalidation(ConsumerRecord<String, UserCacheInvalidation> record) {
+        UserCacheInvalidation invalidation = record.value();
+        if (invalidation == null || properties.nodeId().equals(invalidation.nodeId())) {
+            return;
+        }
+        cache.evict(invalidation.userId());
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        revokedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        long since = revokedAt;
+        if (since == 0) {
+            // First assignment: the cache is still empty, nothing to catch up on.
+            callback.seekToEnd(assignments.keySet());
+            return;
+        }
+        if (System.currentTimeMillis() - since > properties.catchUpWindow().toMillis()) {
+            logger.warn("Cache invalidation gap exceeds {}, clearing users cache", properties.catchUpWindow());
+            cache.clear();
+            callback.seekToEnd(assignments.keySet());
+            return;
+        }
+        callback.seekToTimestamp(assignments.keySet(), since - CLOCK_SKEW_MILLIS);
+    }
+}
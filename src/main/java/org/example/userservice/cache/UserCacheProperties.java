@@ -0,0 +1,19 @@
+package org.example.userservice.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Bounds of the in-process cache of users read by id.
+ */
+@ConfigurationProperties(prefix = "app.cache.users")
+public record UserCacheProperties(
+        @DefaultValue("10000")
+        long maximumSize,
+
+        @DefaultValue("5m")
+        Duration expireAfterWrite
+) {
+}
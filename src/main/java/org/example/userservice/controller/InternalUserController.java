@@ -0,0 +1,63 @@
+package org.example.userservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.service.UserService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Read endpoints for other services. They return plain {@link UserResponse} JSON without HAL
+ * links, so no link building happens and the payload is smaller.
+ */
+@RestController
+@RequestMapping(value = "/internal/users", produces = MediaType.APPLICATION_JSON_VALUE)
+@Tag(name = "Internal Users Module", description = "Plain JSON user reads for service-to-service calls")
+public class InternalUserController {
+
+    private final UserService service;
+
+    public InternalUserController(UserService service) {
+        this.service = service;
+    }
+
+    @ApiResponse(responseCode = "200", description = "Page of users",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserPage.class))})
+    @Operation(summary = "Get users",
+            description = "Get existing users ordered by id, one page at a time, with the cursors of the neighbouring pages.")
+    @GetMapping
+    public UserPage getUsers(
+            @Parameter(description = "Return users with id greater than this cursor")
+            @RequestParam(required = false)
+            Long after,
+
+            @Parameter(description = "Return users with id less than this cursor")
+            @RequestParam(required = false)
+            Long before,
+
+            @Parameter(description = "Page size, capped at " + UserService.MAX_PAGE_SIZE)
+            @RequestParam(required = false)
+            Integer limit
+    ) {
+        return service.getUsers(after, before, limit);
+    }
+
+    @ApiResponse(responseCode = "200", description = "User is found",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserResponse.class))})
+    @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
+    @Operation(summary = "Read user", description = "Read user by id.")
+    @GetMapping("{id}")
+    public UserResponse getUserById(
+            @Parameter(description = "ID of user to be retrieved", required = true)
+            @PathVariable
+            Long id
+    ) {
+        return service.readUser(id);
+    }
+}
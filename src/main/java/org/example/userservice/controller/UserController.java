@@ -1,5 +1,7 @@
 package org.example.userservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -7,61 +9,197 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.example.userservice.domain.User;
 import org.example.userservice.dto.CreateUserRequest;
 import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserBatchDeleteResponse;
+import org.example.userservice.dto.UserBatchResponse;
+import org.example.userservice.dto.UserMatch;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
 import org.example.userservice.hateoas.UserModelAssembler;
+import org.example.userservice.idempotency.IdempotencyStore;
+import org.example.userservice.search.UserFuzzyIndex;
 import org.example.userservice.service.UserService;
 import org.slf4j.Logger;
+import org.springdoc.core.annotations.ParameterObject;
 import org.slf4j.LoggerFactory;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 
 @RestController
 @RequestMapping(value = "/users", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
 @Tag(name = "Users Module", description = "User management operations")
 public class UserController {
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
 
     private final UserService service;
     private final UserModelAssembler assembler;
+    private final ObjectMapper objectMapper;
+    private final UserFuzzyIndex fuzzyIndex;
+    private final IdempotencyStore idempotencyStore;
     Logger logger = LoggerFactory.getLogger(UserController.class);
 
-    public UserController(UserService service, UserModelAssembler assembler) {
+    public UserController(UserService service, UserModelAssembler assembler, ObjectMapper objectMapper,
+                          UserFuzzyIndex fuzzyIndex, IdempotencyStore idempotencyStore) {
         this.service = service;
         this.assembler = assembler;
+        this.objectMapper = objectMapper;
+        this.fuzzyIndex = fuzzyIndex;
+        this.idempotencyStore = idempotencyStore;
     }
 
-    @ApiResponse(responseCode = "200", description = "List of users")
-    @Operation(summary = "Get all users",
-            description = "Get all existing users. The response is User List where each element " +
-                    "is User object with id, name, email, age, creation time and last update time.")
+    @ApiResponse(responseCode = "200", description = "Page of users")
+    @Operation(summary = "Get users",
+            description = "Get existing users ordered by id, one page at a time. The response is User List where each element " +
+                    "is User object with id, name, email, age, creation time and last update time, " +
+                    "with 'next' and 'prev' links to the neighbouring pages. " +
+                    "The ETag covers the whole page.")
+    @ApiResponse(responseCode = "304", description = "Page has not changed since the ETag in If-None-Match", content = @Content)
     @GetMapping
-    public CollectionModel<EntityModel<UserResponse>> getAllUsers() {
-        return assembler.toCollectionModel(service.getUsers());
+    public ResponseEntity<CollectionModel<EntityModel<UserResponse>>> getAllUsers(
+            @Parameter(description = "Return users with id greater than this cursor")
+            @RequestParam(required = false)
+            Long after,
+
+            @Parameter(description = "Return users with id less than this cursor")
+            @RequestParam(required = false)
+            Long before,
+
+            @Parameter(description = "Page size, capped at " + UserService.MAX_PAGE_SIZE)
+            @RequestParam(required = false)
+            Integer limit,
+
+            WebRequest webRequest
+    ) {
+        UserPage page = service.getUsers(after, before, limit);
+        String etag = UserETags.of(page);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(assembler.toCollectionModel(page));
+    }
+
+    @ApiResponse(responseCode = "200", description = "Page of matching users")
+    @ApiResponse(responseCode = "304", description = "Page has not changed since the ETag in If-None-Match", content = @Content)
+    @ApiResponse(responseCode = "400", description = "Invalid filter", content = @Content)
+    @Operation(summary = "Search users",
+            description = "Find users matching all given filters, ordered by id, one page at a time " +
+                    "with a 'next' link. Every filter is served by an index on the users table.")
+    @GetMapping("search")
+    public ResponseEntity<CollectionModel<EntityModel<UserResponse>>> searchUsers(
+            @Valid @ParameterObject
+            UserSearchFilter filter,
+
+            @Parameter(description = "Return users with id greater than this cursor")
+            @RequestParam(required = false)
+            Long after,
+
+            @Parameter(description = "Page size, capped at " + UserService.MAX_PAGE_SIZE)
+            @RequestParam(required = false)
+            Integer limit,
+
+            WebRequest webRequest
+    ) {
+        UserPage page = service.searchUsers(filter, after, limit);
+        String etag = UserETags.of(page);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(assembler.toCollectionModel(page));
+    }
+
+    @ApiResponse(responseCode = "200", description = "Ids of similar users, best first")
+    @ApiResponse(responseCode = "400", description = "Empty or too long query", content = @Content)
+    @Operation(summary = "Fuzzy search users",
+            description = "Find users whose name or email resembles the query, tolerating typos and " +
+                    "word order, ranked by trigram similarity. Served from an in-memory index that may " +
+                    "briefly lag writes made through other instances, so read the users back by id.")
+    @GetMapping(path = "fuzzy", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<UserMatch> fuzzySearchUsers(
+            @Parameter(description = "Free text, e.g. 'jhon smit'")
+            @RequestParam
+            @Size(min = 1, max = UserFuzzyIndex.MAX_QUERY_LENGTH)
+            String q,
+
+            @Parameter(description = "Maximum number of matches")
+            @RequestParam(required = false)
+            Integer limit
+    ) {
+        return fuzzyIndex.search(q, limit);
+    }
+
+    @ApiResponse(responseCode = "200", description = "Stream of users",
+            content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = UserResponse.class))})
+    @Operation(summary = "Export users",
+            description = "Export all users as newline-delimited JSON ordered by id. " +
+                    "Rows are streamed from the database, so the response size is not bounded by memory.")
+    @GetMapping(path = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                long exported = service.exportUsers(user -> {
+                    try {
+                        generator.writeObject(user);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                logger.info("Exported {} users", exported);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @ApiResponse(responseCode = "200", description = "User is found",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))})
+    @ApiResponse(responseCode = "304", description = "User has not changed since the ETag in If-None-Match", content = @Content)
     @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
     @Operation(summary = "Read user",
             description = "Read user by id. The response is User object with" +
-                    " id, name, email, age, creation time and last update time.")
+                    " id, name, email, age, creation time and last update time. " +
+                    "The ETag is the user version; If-None-Match is answered without loading the user.")
     @GetMapping("read/{id}")
-    public EntityModel<UserResponse> getUserById(
+    public ResponseEntity<EntityModel<UserResponse>> getUserById(
             @Parameter(description = "ID of user to be retrieved", required = true)
             @PathVariable
-            Long id
+            Long id,
+
+            WebRequest webRequest
     ) {
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(UserETags.of(service.readVersion(id)))) {
+            return null;
+        }
         UserResponse user = service.readUser(id);
-        return assembler.toModel(user);
+        return ResponseEntity.ok()
+                .eTag(UserETags.of(user.version()))
+                .body(assembler.toModel(user));
     }
 
 
@@ -70,43 +208,89 @@ public class UserController {
     @ApiResponse(responseCode = "400", description = "Invalid data", content = @Content)
     @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
     @ApiResponse(responseCode = "409", description = "Email is already in use", content = @Content)
+    @ApiResponse(responseCode = "412", description = "User has changed since the ETag in If-Match", content = @Content)
     @Operation(summary = "Update an user",
-            description = "Update an existing user. The response is updated User object with id, name, email, age, creation time and last update time.")
+            description = "Update an existing user. The response is updated User object with id, name, email, age, creation time and last update time. " +
+                    "With If-Match the update is applied only if the user still has that ETag.")
     @PutMapping(path = "update/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public EntityModel<UserResponse> updateUser(
+    public ResponseEntity<EntityModel<UserResponse>> updateUser(
             @PathVariable
             @Parameter(description = "ID of user to be updated", required = true)
             Long id,
 
             @Valid @RequestBody
-            UpdateUserRequest request
+            UpdateUserRequest request,
+
+            @Parameter(description = "ETag the user must still have")
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+            String ifMatch
     ) {
-        return assembler.toModel(service.updateUser(id, request));
+        UserResponse user = service.updateUser(id, request, UserETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(UserETags.of(user.version()))
+                .body(assembler.toModel(user));
     }
 
     @ApiResponse(responseCode = "201", description = "User is created",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))})
     @ApiResponse(responseCode = "400", description = "Invalid data", content = @Content)
     @ApiResponse(responseCode = "409", description = "Email is already in use", content = @Content)
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for a different request", content = @Content)
     @Operation(summary = "Create user",
-            description = "Create user. The response is User object with id, name, email, age, creation time and last update time.")
+            description = "Create user. The response is User object with id, name, email, age, creation time and last update time. " +
+                    "A retry with the same Idempotency-Key returns the first response, marked with Idempotent-Replayed, " +
+                    "instead of creating the user again.")
     @PostMapping(path = "/create", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<EntityModel<UserResponse>> createUser(
             @Valid
             @RequestBody
             CreateUserRequest request,
 
+            @Parameter(description = "Client-chosen key that identifies this request across retries")
+            @Size(max = 255)
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+            String idempotencyKey,
+
             UriComponentsBuilder uriBuilder
     ) {
         logger.info("Received request to create user");
-        UserResponse created = service.createUser(request);
-        logger.info("Created: {}", created);
+        UserResponse created;
+        boolean replayed = false;
+        if (idempotencyKey == null) {
+            created = service.createUser(request);
+        } else {
+            IdempotencyStore.Result result = idempotencyStore.createUser(idempotencyKey, request);
+            created = result.user();
+            replayed = result.replayed();
+        }
+        logger.info(replayed ? "Replayed: {}" : "Created: {}", created);
         EntityModel<UserResponse> model = assembler.toModel(created);
-        return ResponseEntity
+        ResponseEntity.BodyBuilder response = ResponseEntity
                 .created(uriBuilder.path("/users/read/{id}")
                         .buildAndExpand(created.id())
-                        .toUri())
-                .body(model);
+                        .toUri());
+        if (replayed) {
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return response.body(model);
+    }
+
+    @ApiResponse(responseCode = "200", description = "Batch is processed, see the status of each user",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserBatchResponse.class))})
+    @ApiResponse(responseCode = "400", description = "Batch is empty or too large", content = @Content)
+    @Operation(summary = "Create users",
+            description = "Create up to " + UserService.MAX_BATCH_SIZE + " users at once. Each user is validated and checked " +
+                    "for email uniqueness separately; the response lists the created user or the error for every position.")
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public UserBatchResponse createUsers(
+            @Size(min = 1, max = UserService.MAX_BATCH_SIZE)
+            @RequestBody
+            List<CreateUserRequest> requests
+    ) {
+        logger.info("Received request to create {} users", requests.size());
+        UserBatchResponse response = service.createUsers(requests);
+        logger.info("Created {} of {} users", response.created(), requests.size());
+        return response;
     }
 
     @ApiResponse(responseCode = "204", description = "User is deleted",
@@ -124,4 +308,21 @@ public class UserController {
         service.removeUserById(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    @ApiResponse(responseCode = "200", description = "Batch is deleted, see the ids that were not found",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserBatchDeleteResponse.class))})
+    @ApiResponse(responseCode = "400", description = "Batch is empty or too large", content = @Content)
+    @Operation(summary = "Delete users",
+            description = "Delete up to " + UserService.MAX_BATCH_SIZE + " users at once with a single statement. " +
+                    "Ids that do not match any user are listed in the response.")
+    @PostMapping(path = "/batch/delete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public UserBatchDeleteResponse deleteUsers(
+            @Size(min = 1, max = UserService.MAX_BATCH_SIZE)
+            @RequestBody
+            List<@NotNull Long> ids
+    ) {
+        UserBatchDeleteResponse response = service.removeUsersById(ids);
+        logger.info("Deleted {} of {} users", response.deleted(), ids.size());
+        return response;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.userservice.controller;
+
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strong validators for user representations. A user's tag is its version, so it can be
+ * checked by reading that one column. A page's tag covers every user on it and both cursors,
+ * since those decide the links as well.
+ */
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(UserPage page) {
+        long hash = 0xcbf29ce484222325L;
+        for (UserResponse user : page.users()) {
+            hash = mix(hash, user.id());
+            hash = mix(hash, user.version());
+        }
+        hash = mix(hash, page.nextCursor() == null ? -1 : page.nextCursor());
+        hash = mix(hash, page.prevCursor() == null ? -1 : page.prevCursor());
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Versions listed in an {@code If-Match} header, or {@code null} when there is no
+     * precondition. Weak and malformed tags never match, so they are left out.
+     */
+    static List<Long> parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours, so it cannot match.
+            }
+        }
+        return versions;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9e3779b97f4a7c15L;
+        return hash ^ (hash >>> 29);
+    }
+}
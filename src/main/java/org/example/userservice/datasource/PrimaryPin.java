@@ -0,0 +1,24 @@
+package org.example.userservice.datasource;
+
+/**
+ * Marks the current thread as bound to the primary, so even read-only transactions avoid the
+ * replicas. Set by {@link ReadYourWritesFilter} for the duration of a request.
+ */
+public final class PrimaryPin {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryPin() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.userservice.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source with primary/replica routing when
+ * {@code app.replicas.enabled} is set. The primary still comes from {@code spring.datasource}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.replicas", name = "enabled")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * The primary pool, bound to {@code spring.datasource.hikari} as the auto-configured one would be.
+     * Being a bean of its own, it also gets its pool metrics from Boot.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaProperties properties,
+                                 MeterRegistry meterRegistry) {
+        // The replica pools are hidden behind the routing proxy, so their metrics are bound here.
+        List<DataSource> replicas = new ArrayList<>(properties.sources().size());
+        for (ReplicaProperties.Replica replica : properties.sources()) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.url())
+                    .username(replica.username())
+                    .password(replica.password())
+                    .build();
+            pool.setPoolName("replica-" + replicas.size());
+            pool.setMetricRegistry(meterRegistry);
+            replicas.add(pool);
+        }
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicas));
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties properties) {
+        return new ReadYourWritesFilter(properties);
+    }
+}
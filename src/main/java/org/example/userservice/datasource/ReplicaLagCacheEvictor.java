@@ -0,0 +1,37 @@
+package org.example.userservice.datasource;
+
+import org.example.userservice.cache.UserCacheConfig;
+import org.example.userservice.events.UserChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+
+/**
+ * Evicts a changed user from the cache a second time once the read-your-writes window has
+ * passed. Between commit and replication, a reader on another client can load the old row from
+ * a replica and cache it; the second eviction bounds that staleness by the window instead of
+ * the cache expiry.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.replicas", name = "enabled")
+public class ReplicaLagCacheEvictor {
+    private final Cache cache;
+    private final TaskScheduler taskScheduler;
+    private final ReplicaProperties properties;
+
+    public ReplicaLagCacheEvictor(CacheManager cacheManager, TaskScheduler taskScheduler, ReplicaProperties properties) {
+        this.cache = cacheManager.getCache(UserCacheConfig.USERS);
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        taskScheduler.schedule(() -> cache.evict(event.userId()), Instant.now().plus(properties.readYourWritesWindow()));
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.userservice.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas of the primary configured by {@code spring.datasource}. After a write, a client
+ * keeps reading from the primary for {@code readYourWritesWindow}, which should exceed the
+ * usual replication lag.
+ */
+@ConfigurationProperties(prefix = "app.replicas")
+public record ReplicaProperties(
+        @DefaultValue
+        List<Replica> sources,
+
+        @DefaultValue("5s")
+        Duration readYourWritesWindow
+) {
+    public record Replica(String url, String username, String password) {
+    }
+}
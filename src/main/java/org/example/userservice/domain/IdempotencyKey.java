@@ -0,0 +1,77 @@
+package org.example.userservice.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * Response of a request made with an {@code Idempotency-Key}, written in the transaction of the
+ * request itself. The key is the primary key, so a second node inserting the same key waits for
+ * the first transaction and then fails instead of repeating the work.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_keys_created", columnList = "created_at"))
+public class IdempotencyKey implements Persistable<String> {
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    /** SHA-256 of the request, to reject a key reused for a different request. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false, length = 4000)
+    private String response;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    @Transient
+    private boolean isNew;
+
+    public IdempotencyKey(String key, String requestHash, String response, Date createdAt) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.response = response;
+        this.createdAt = createdAt;
+    }
+
+    public IdempotencyKey(String key, String requestHash, String response) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.response = response;
+        this.isNew = true;
+    }
+
+    public IdempotencyKey() {
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    /**
+     * Keys are assigned by clients, so a new key would otherwise be merged with a select first.
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.userservice.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "user_outbox")
+public class OutboxEvent {
+    // A sequence rather than IDENTITY, so that enqueueAll can batch its inserts. It is not pooled:
+    // each instance would hand out ids from its own block, and the relay sends rows in id order.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_id_seq")
+    @SequenceGenerator(name = "user_outbox_id_seq", sequenceName = "user_outbox_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    // JSON of the user after the event, null once the user is deleted.
+    @Column(length = 4000)
+    private String state;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public OutboxEvent(Long id, String payload, String state, Date createdAt) {
+        this.id = id;
+        this.payload = payload;
+        this.state = state;
+        this.createdAt = createdAt;
+    }
+
+    public OutboxEvent(String payload, String state) {
+        this.payload = payload;
+        this.state = state;
+    }
+
+    public OutboxEvent() {
+    }
+}
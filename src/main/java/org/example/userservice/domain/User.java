@@ -5,15 +5,27 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.util.Date;
 
 @Entity
-@Table(name = "users", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+@DynamicUpdate
+@Table(name = "users",
+        uniqueConstraints = @UniqueConstraint(columnNames = "email"),
+        // Search filters; the trailing id keeps keyset pages in index order for equality and prefix filters.
+        indexes = {
+                @Index(name = "idx_users_name", columnList = "name, id"),
+                @Index(name = "idx_users_email_domain", columnList = "email_domain, id"),
+                @Index(name = "idx_users_age_created", columnList = "age, created_at"),
+                @Index(name = "idx_users_created", columnList = "created_at, id"),
+                @Index(name = "idx_users_updated", columnList = "updated_at, id")
+        })
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_seq")
+    @SequenceGenerator(name = "user_id_seq", sequenceName = "user_id_seq", allocationSize = 50)
     private Long id;
     @Column(nullable = false, length = 100)
     private String name;
@@ -23,6 +35,10 @@ public class User {
     @Column(nullable = false, length = 254)
     private String email;
 
+    /** Part of the email after '@', kept in its own column so it can be indexed. */
+    @Column(name = "email_domain", nullable = false, length = 254)
+    private String emailDomain;
+
     @Column(nullable = false)
     private Integer age;
 
@@ -34,6 +50,10 @@ public class User {
     @Column(name = "updated_at", nullable = false)
     private Date updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -56,6 +76,18 @@ public class User {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailDomain = domainOf(email);
+    }
+
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    public static String domainOf(String email) {
+        if (email == null) {
+            return null;
+        }
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase();
     }
 
     public Integer getAge() {
@@ -74,10 +106,15 @@ public class User {
         return updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public User(Long id, String name, String email, Integer age, Date createdAt, Date updatedAt) {
         this.id = id;
         this.name = name;
         this.email = email;
+        this.emailDomain = domainOf(email);
         this.age = age;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
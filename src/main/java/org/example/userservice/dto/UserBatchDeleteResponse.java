@@ -0,0 +1,16 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Result of a batch delete request")
+public record UserBatchDeleteResponse(
+
+        @Schema(description = "Number of users deleted", example = "998")
+        int deleted,
+
+        @Schema(description = "Requested ids that did not match any user", example = "[17, 42]")
+        List<Long> notFound
+) {
+}
@@ -0,0 +1,37 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Result of one user of a batch create request")
+public record UserBatchItem(
+
+        @Schema(description = "Position of the user in the request", example = "0")
+        int index,
+
+        @Schema(description = "Outcome for this user", example = "CREATED")
+        Status status,
+
+        @Schema(description = "Created user, present when status is CREATED")
+        UserResponse user,
+
+        @Schema(description = "Reason the user was not created", example = "Email already in use")
+        String error
+) {
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID
+    }
+
+    public static UserBatchItem created(int index, UserResponse user) {
+        return new UserBatchItem(index, Status.CREATED, user, null);
+    }
+
+    public static UserBatchItem conflict(int index) {
+        return new UserBatchItem(index, Status.CONFLICT, null, "Email already in use");
+    }
+
+    public static UserBatchItem invalid(int index, String error) {
+        return new UserBatchItem(index, Status.INVALID, null, error);
+    }
+}
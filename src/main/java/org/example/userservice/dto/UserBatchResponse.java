@@ -0,0 +1,16 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Per-user results of a batch create request")
+public record UserBatchResponse(
+
+        @Schema(description = "Number of users created", example = "998")
+        int created,
+
+        @Schema(description = "Results in request order")
+        List<UserBatchItem> items
+) {
+}
@@ -0,0 +1,14 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "User whose name or email resembles a fuzzy query")
+public record UserMatch(
+
+        @Schema(description = "User id", example = "42")
+        long id,
+
+        @Schema(description = "Trigram similarity between 0 and 1 of the closer of name and email", example = "0.54")
+        double score
+) {
+}
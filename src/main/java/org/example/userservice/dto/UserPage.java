@@ -0,0 +1,22 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Page of users ordered by id")
+public record UserPage(
+
+        @Schema(description = "Users of the page")
+        List<UserResponse> users,
+
+        @Schema(description = "Effective page size", example = "20")
+        int limit,
+
+        @Schema(description = "Cursor for the next page, passed as 'after'", example = "140")
+        Long nextCursor,
+
+        @Schema(description = "Cursor for the previous page, passed as 'before'", example = "121")
+        Long prevCursor
+) {
+}
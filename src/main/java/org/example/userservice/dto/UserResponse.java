@@ -23,6 +23,9 @@ public record UserResponse(
         Date createdAt,
 
         @Schema(description = "Time of last user update", example = "2025-11-09T11:45:51.077Z")
-        Date updatedAt
+        Date updatedAt,
+
+        @Schema(description = "Version of user, incremented on every update", example = "3")
+        Long version
 ) {
 }
@@ -0,0 +1,42 @@
+package org.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Instant;
+
+@Schema(description = "Filters of a user search; absent filters match every user")
+public record UserSearchFilter(
+
+        @Schema(description = "Start of the user name, case-sensitive", example = "Jo")
+        @Size(min = 1, max = 50)
+        String namePrefix,
+
+        @Schema(description = "Minimum age, inclusive", example = "18")
+        Integer minAge,
+
+        @Schema(description = "Maximum age, inclusive", example = "25")
+        Integer maxAge,
+
+        @Schema(description = "Created at or after", example = "2025-11-01T00:00:00Z")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        Instant createdFrom,
+
+        @Schema(description = "Created before", example = "2025-11-08T00:00:00Z")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        Instant createdTo,
+
+        @Schema(description = "Updated at or after", example = "2025-11-01T00:00:00Z")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        Instant updatedFrom,
+
+        @Schema(description = "Updated before", example = "2025-11-08T00:00:00Z")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        Instant updatedTo,
+
+        @Schema(description = "Email domain, the part after '@'", example = "mail.ru")
+        @Size(min = 1, max = 254)
+        String emailDomain
+) {
+}
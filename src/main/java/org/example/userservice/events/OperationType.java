@@ -2,5 +2,6 @@ package org.example.userservice.events;
 
 public enum OperationType {
     CREATE,
+    UPDATE,
     DELETE
 }
@@ -0,0 +1,8 @@
+package org.example.userservice.events;
+
+/**
+ * Application event published by {@code UserService} when a user is updated or deleted.
+ * Listeners that must not see uncommitted changes use {@code @TransactionalEventListener}.
+ */
+public record UserChangedEvent(Long userId) {
+}
@@ -0,0 +1,7 @@
+package org.example.userservice.events;
+
+/**
+ * Application event published by {@code UserService} when a user is deleted.
+ */
+public record UserDeletedEvent(Long userId) {
+}
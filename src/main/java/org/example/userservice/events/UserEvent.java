@@ -1,11 +1,31 @@
 package org.example.userservice.events;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Objects;
 
+/**
+ * Change of one user, published to the {@code users} topic keyed by {@code userId}. CREATE
+ * carries the whole user, UPDATE the new version and only the fields the update set, DELETE the
+ * id, the email and the last version of the removed user. Absent fields are left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class UserEvent {
+    private Long userId;
     private String email;
+    private String name;
+    private Integer age;
+    private Long version;
     private OperationType operation;
 
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     public OperationType getOperation() {
         return operation;
     }
@@ -22,18 +42,50 @@ public class UserEvent {
         this.email = email;
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         UserEvent that = (UserEvent) o;
-        return Objects.equals(email, that.email)
+        return Objects.equals(userId, that.userId)
+                && Objects.equals(email, that.email)
+                && Objects.equals(name, that.name)
+                && Objects.equals(age, that.age)
+                && Objects.equals(version, that.version)
                 && Objects.equals(operation, that.operation);
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hashCode(email);
+        int result = Objects.hashCode(userId);
+        result = 31 * result + Objects.hashCode(email);
+        result = 31 * result + Objects.hashCode(name);
+        result = 31 * result + Objects.hashCode(age);
+        result = 31 * result + Objects.hashCode(version);
         result = 31 * result + Objects.hashCode(operation);
         return result;
     }
@@ -0,0 +1,8 @@
+package org.example.userservice.events;
+
+/**
+ * Application event published by {@code UserService} when a user is created or updated, with
+ * the name and email as committed.
+ */
+public record UserSavedEvent(Long userId, String name, String email) {
+}
@@ -1,17 +1,27 @@
 package org.example.userservice.exception.handler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.userservice.exception.types.ConflictException;
 import org.example.userservice.exception.types.NotFoundException;
+import org.example.userservice.exception.types.PreconditionFailedException;
+import org.example.userservice.exception.types.ServiceUnavailableException;
+import org.example.userservice.exception.types.UnprocessableEntityException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSourceResolvable;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -23,9 +33,35 @@ import java.util.Map;
 public class GlobalExceptionHandler {
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final Counter notFound;
+    private final Counter badRequest;
+    private final Counter conflict;
+    private final Counter preconditionFailed;
+    private final Counter unprocessableEntity;
+    private final Counter serviceUnavailable;
+    private final Counter internalError;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.notFound = errorCounter(meterRegistry, "not-found");
+        this.badRequest = errorCounter(meterRegistry, "bad-request");
+        this.conflict = errorCounter(meterRegistry, "conflict");
+        this.preconditionFailed = errorCounter(meterRegistry, "precondition-failed");
+        this.unprocessableEntity = errorCounter(meterRegistry, "unprocessable-entity");
+        this.serviceUnavailable = errorCounter(meterRegistry, "service-unavailable");
+        this.internalError = errorCounter(meterRegistry, "internal-server");
+    }
+
+    private static Counter errorCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("user.errors")
+                .description("Requests answered with an error, by problem type")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
     @ExceptionHandler(NotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ProblemDetail handleNotFoundException(NotFoundException exception) {
+        notFound.increment();
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
         problemDetail.setProperty("timestamp", new Date().toString());
         problemDetail.setType(URI.create("http://localhost:8080/users/error/not-found"));
@@ -35,6 +71,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ProblemDetail handleBodyValidation(MethodArgumentNotValidException exception) {
+        badRequest.increment();
         ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
         problemDetail.setDetail("Validation failed");
         problemDetail.setType(URI.create("http://localhost:8080/users/error/bad-request"));
@@ -47,18 +84,76 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ProblemDetail handleParameterValidation(HandlerMethodValidationException exception) {
+        badRequest.increment();
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        problemDetail.setDetail("Validation failed");
+        problemDetail.setType(URI.create("http://localhost:8080/users/error/bad-request"));
+        List<String> list = new ArrayList<>();
+        for (MessageSourceResolvable error : exception.getAllErrors()) {
+            list.add(error.getDefaultMessage());
+        }
+        problemDetail.setProperty("errors", list);
+        return problemDetail;
+    }
+
     @ExceptionHandler(ConflictException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public ProblemDetail handleNotFoundException(ConflictException exception) {
+        conflict.increment();
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
         problemDetail.setProperty("timestamp", new Date().toString());
         problemDetail.setType(URI.create("http://localhost:8080/users/error/conflict"));
         return problemDetail;
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ProblemDetail handlePreconditionFailedException(PreconditionFailedException exception) {
+        preconditionFailed.increment();
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED, exception.getMessage());
+        problemDetail.setProperty("timestamp", new Date().toString());
+        problemDetail.setType(URI.create("http://localhost:8080/users/error/precondition-failed"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(UnprocessableEntityException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ProblemDetail handleUnprocessableEntityException(UnprocessableEntityException exception) {
+        unprocessableEntity.increment();
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage());
+        problemDetail.setProperty("timestamp", new Date().toString());
+        problemDetail.setType(URI.create("http://localhost:8080/users/error/unprocessable-entity"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ProblemDetail> handleServiceUnavailableException(ServiceUnavailableException exception) {
+        serviceUnavailable.increment();
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        problemDetail.setProperty("timestamp", new Date().toString());
+        problemDetail.setType(URI.create("http://localhost:8080/users/error/service-unavailable"));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (exception.getRetryAfter().toMillis() + 999) / 1000)))
+                .body(problemDetail);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ProblemDetail handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        conflict.increment();
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "User was modified concurrently");
+        problemDetail.setProperty("timestamp", new Date().toString());
+        problemDetail.setType(URI.create("http://localhost:8080/users/error/conflict"));
+        return problemDetail;
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public ProblemDetail handleDataIntegrityViolationException(DataIntegrityViolationException exception) {
+        conflict.increment();
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, exception.getMessage());
         problemDetail.setProperty("timestamp", new Date().toString());
         problemDetail.setType(URI.create("http://localhost:8080/users/error/conflict"));
@@ -68,6 +163,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ProblemDetail handleUnexpected(Exception exception) {
+        internalError.increment();
         ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.INTERNAL_SERVER_ERROR);
         log.error(exception.getMessage(), exception);
         problemDetail.setDetail("Unexpected error");
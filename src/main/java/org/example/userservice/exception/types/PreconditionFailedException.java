@@ -0,0 +1,7 @@
+package org.example.userservice.exception.types;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
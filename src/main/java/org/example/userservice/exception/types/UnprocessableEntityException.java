@@ -0,0 +1,7 @@
+package org.example.userservice.exception.types;
+
+public class UnprocessableEntityException extends RuntimeException {
+    public UnprocessableEntityException(String message) {
+        super(message);
+    }
+}
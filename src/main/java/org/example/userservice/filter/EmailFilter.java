@@ -0,0 +1,101 @@
+package org.example.userservice.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.userservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the normalized emails in the {@code users} table, used to skip the uniqueness
+ * query when an email is definitely not taken. Until the first build finishes every email is
+ * reported as possibly taken. The filter is rebuilt from the table on a fixed delay, which also
+ * drops emails of deleted users. An email inserted by another instance may be missing here; the
+ * unique constraint on {@code users.email} still rejects it.
+ */
+@Component
+public class EmailFilter {
+    private final Logger logger = LoggerFactory.getLogger(EmailFilter.class);
+
+    private final UserRepository userRepository;
+    private final EmailFilterProperties properties;
+
+    private volatile EmailBloomFilter current;
+    private volatile EmailBloomFilter building;
+
+    private final Counter skipped;
+    private final Counter falsePositives;
+
+    public EmailFilter(UserRepository userRepository, EmailFilterProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        Gauge.builder("user.email-filter.false-positive-rate", this, f -> f.current == null ? 1.0 : f.current.falsePositiveRate())
+                .description("Estimated share of free emails that still need a uniqueness query")
+                .register(meterRegistry);
+        Gauge.builder("user.email-filter.size", this, f -> f.current == null ? 0 : f.current.sizeInBytes())
+                .description("Memory used by the email filter bits")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("user.email-filter.skipped")
+                .description("Uniqueness queries skipped because the email was definitely free")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("user.email-filter.false-positives")
+                .description("Uniqueness queries for emails the filter reported as possibly taken that were free")
+                .register(meterRegistry);
+    }
+
+    public boolean mightExist(String normalizedEmail) {
+        EmailBloomFilter filter = current;
+        if (filter == null || filter.mightContain(normalizedEmail)) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    public void add(String normalizedEmail) {
+        EmailBloomFilter filter = current;
+        if (filter != null) {
+            filter.put(normalizedEmail);
+        }
+        EmailBloomFilter next = building;
+        if (next != null) {
+            next.put(normalizedEmail);
+        }
+    }
+
+    public void recordFalsePositive() {
+        if (current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Reads the table in a read-write transaction, which keeps it on the primary: a lagging replica
+     * would drop emails that were just added to the current filter.
+     */
+    @Scheduled(fixedDelayString = "${app.email-filter.rebuild-interval:6h}")
+    @Transactional
+    public void rebuild() {
+        long expected = Math.max(properties.expectedInsertions(), userRepository.count() * 2);
+        EmailBloomFilter next = new EmailBloomFilter(expected, properties.falsePositiveRate());
+        building = next;
+        try (Stream<String> emails = userRepository.streamAllEmails()) {
+            Iterator<String> iterator = emails.iterator();
+            while (iterator.hasNext()) {
+                next.put(iterator.next().trim().toLowerCase());
+            }
+            current = next;
+        } finally {
+            building = null;
+        }
+        logger.info("Email filter rebuilt: {} bytes, {} hash functions", next.sizeInBytes(), next.hashFunctions());
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.userservice.filter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Sizing of the email Bloom filter. The rebuild interval is read directly by {@link EmailFilter}
+ * from {@code app.email-filter.rebuild-interval}.
+ */
+@ConfigurationProperties(prefix = "app.email-filter")
+public record EmailFilterProperties(
+        @DefaultValue("1000000")
+        long expectedInsertions,
+
+        @DefaultValue("0.01")
+        double falsePositiveRate
+) {
+}
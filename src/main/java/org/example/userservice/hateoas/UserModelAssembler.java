@@ -1,38 +1,104 @@
 package org.example.userservice.hateoas;
 
 import org.example.userservice.controller.UserController;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
 @Component
 public class UserModelAssembler implements RepresentationModelAssembler<UserResponse, EntityModel<UserResponse>> {
 
+    private static final int MAX_CACHED_BASES = 64;
+
+    private final Map<String, LinkTemplates> templatesByBase = new ConcurrentHashMap<>();
+
     @Override
     public EntityModel<UserResponse> toModel(UserResponse user) {
-        Link selfRelation = linkTo(methodOn(UserController.class).getUserById(user.id())).withSelfRel();
-        Link allUsers = linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users");
-        Link updateUser = linkTo(methodOn(UserController.class).updateUser(user.id(), null)).withRel("update");
-        Link deleteUser = linkTo(methodOn(UserController.class).deleteUser(user.id())).withRel("delete");
-        return EntityModel.of(user, selfRelation, allUsers, updateUser, deleteUser);
+        return toModel(user, currentTemplates());
     }
 
-    public CollectionModel<EntityModel<UserResponse>> toCollectionModel(List<UserResponse> users) {
-        List<EntityModel<UserResponse>> models = new ArrayList<>();
-        for (UserResponse user : users) {
-            EntityModel<UserResponse> model = toModel(user);
+    public CollectionModel<EntityModel<UserResponse>> toCollectionModel(UserPage page) {
+        LinkTemplates templates = currentTemplates();
+        List<EntityModel<UserResponse>> models = new ArrayList<>(page.users().size());
+        for (UserResponse user : page.users()) {
+            EntityModel<UserResponse> model = toModel(user, templates);
             models.add(model);
         }
-        Link selfRelation = linkTo(methodOn(UserController.class).getAllUsers()).withSelfRel();
-        Link createLink = linkTo(methodOn(UserController.class).createUser(null, null)).withRel("create");
-        return CollectionModel.of(models, selfRelation, createLink);
+        List<Link> links = new ArrayList<>();
+        links.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (page.nextCursor() != null) {
+            links.add(pageLink("after", page.nextCursor(), page.limit(), IanaLinkRelations.NEXT_VALUE));
+        }
+        if (page.prevCursor() != null) {
+            links.add(pageLink("before", page.prevCursor(), page.limit(), IanaLinkRelations.PREV_VALUE));
+        }
+        links.add(Link.of(templates.create(), "create"));
+        return CollectionModel.of(models, links);
+    }
+
+    private EntityModel<UserResponse> toModel(UserResponse user, LinkTemplates templates) {
+        String id = String.valueOf(user.id());
+        Link selfRelation = Link.of(templates.read() + id).withSelfRel();
+        Link allUsers = Link.of(templates.allUsers(), "all-users");
+        Link updateUser = Link.of(templates.update() + id, "update");
+        Link deleteUser = Link.of(templates.delete() + id, "delete");
+        return EntityModel.of(user, selfRelation, allUsers, updateUser, deleteUser);
+    }
+
+    /**
+     * Link prefixes for the base URI of the current request. The base is resolved by
+     * {@code linkTo}, so forwarded headers are honoured as before, but the proxy-based
+     * {@code methodOn} lookups run only once per distinct base.
+     */
+    private LinkTemplates currentTemplates() {
+        String allUsers = linkTo(UserController.class).withRel("all-users").getHref();
+        LinkTemplates templates = templatesByBase.get(allUsers);
+        if (templates == null) {
+            if (templatesByBase.size() >= MAX_CACHED_BASES) {
+                templatesByBase.clear();
+            }
+            templates = templatesByBase.computeIfAbsent(allUsers, LinkTemplates::resolve);
+        }
+        return templates;
+    }
+
+    private Link pageLink(String cursorName, Long cursor, int limit, String relation) {
+        String href = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after")
+                .replaceQueryParam("before")
+                .replaceQueryParam(cursorName, cursor)
+                .replaceQueryParam("limit", limit)
+                .toUriString();
+        return Link.of(href, relation);
+    }
+
+    private record LinkTemplates(String allUsers, String read, String update, String delete, String create) {
+
+        static LinkTemplates resolve(String allUsers) {
+            return new LinkTemplates(
+                    allUsers,
+                    prefix(linkTo(methodOn(UserController.class).getUserById(null, null)).withSelfRel()),
+                    prefix(linkTo(methodOn(UserController.class).updateUser(null, null, null)).withRel("update")),
+                    prefix(linkTo(methodOn(UserController.class).deleteUser(null)).withRel("delete")),
+                    linkTo(methodOn(UserController.class).createUser(null, null, null)).withRel("create").getHref());
+        }
+
+        private static String prefix(Link template) {
+            String href = template.getHref();
+            return href.substring(0, href.indexOf("{id}"));
+        }
     }
 }
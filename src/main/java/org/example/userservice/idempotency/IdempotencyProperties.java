@@ -0,0 +1,27 @@
+package org.example.userservice.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@code Idempotency-Key} handling. The purge interval is read directly by
+ * {@link IdempotencyStore} from {@code app.idempotency.purge-interval}.
+ *
+ * @param ttl            how long a key is honored after its first request
+ * @param maximumSize    keys kept in memory; older ones are still found in the table
+ * @param purgeBatchSize expired keys deleted per statement
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("24h")
+        Duration ttl,
+
+        @DefaultValue("10000")
+        long maximumSize,
+
+        @DefaultValue("1000")
+        int purgeBatchSize
+) {
+}
@@ -0,0 +1,228 @@
+package org.example.userservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.userservice.domain.IdempotencyKey;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.exception.types.ConflictException;
+import org.example.userservice.exception.types.UnprocessableEntityException;
+import org.example.userservice.repository.IdempotencyKeyRepository;
+import org.example.userservice.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Makes user creation idempotent per {@code Idempotency-Key}. Recent keys are kept in a bounded
+ * in-memory map, so a duplicate of a running request waits for it and shares its outcome instead
+ * of doing the work again. The response of a successful request is also stored in the
+ * {@code idempotency_keys} table in the same transaction as the user, which covers duplicates
+ * that reach another node or arrive after the key left the map. Failed requests are not stored,
+ * so they can be retried with the same key. Keys expire after {@code app.idempotency.ttl} and
+ * are purged in batches.
+ */
+@Component
+public class IdempotencyStore {
+    private final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final UserService userService;
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyProperties properties;
+    private final ConcurrentMap<String, Pending> recent;
+
+    private final Counter replayedFromMemory;
+    private final Counter replayedFromDatabase;
+    private final Counter purged;
+
+    public IdempotencyStore(UserService userService, IdempotencyKeyRepository repository, ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager, IdempotencyProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .<String, Pending>build()
+                .asMap();
+        Gauge.builder("user.idempotency.keys", recent, ConcurrentMap::size)
+                .description("Idempotency keys kept in memory")
+                .register(meterRegistry);
+        this.replayedFromMemory = replayedCounter(meterRegistry, "memory");
+        this.replayedFromDatabase = replayedCounter(meterRegistry, "database");
+        this.purged = Counter.builder("user.idempotency.purged")
+                .description("Expired idempotency keys deleted from the table")
+                .register(meterRegistry);
+    }
+
+    private static Counter replayedCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("user.idempotency.replayed")
+                .description("Requests answered with the response of an earlier request with the same key")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param user     the created user, or the one created by the first request with the key
+     * @param replayed whether the user was created by an earlier request
+     */
+    public record Result(UserResponse user, boolean replayed) {
+    }
+
+    private record Pending(String requestHash, CompletableFuture<UserResponse> response) {
+    }
+
+    /**
+     * Creates the user unless a request with the same key already did.
+     *
+     * @throws UnprocessableEntityException if the key was already used for a different request
+     */
+    public Result createUser(String key, CreateUserRequest request) {
+        String requestHash = requestHash(request);
+        Pending pending = new Pending(requestHash, new CompletableFuture<>());
+        Pending first = recent.putIfAbsent(key, pending);
+        if (first != null) {
+            checkSameRequest(first.requestHash(), requestHash);
+            UserResponse user = await(first.response());
+            replayedFromMemory.increment();
+            return new Result(user, true);
+        }
+        try {
+            Result result = createOnce(key, requestHash, request);
+            pending.response().complete(result.user());
+            return result;
+        } catch (RuntimeException e) {
+            recent.remove(key, pending);
+            pending.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Result createOnce(String key, String requestHash, CreateUserRequest request) {
+        IdempotencyKey stored = findStored(key);
+        if (stored != null && isExpired(stored)) {
+            repository.deleteById(key);
+        } else if (stored != null) {
+            return replay(stored, requestHash);
+        }
+        try {
+            UserResponse user = transactionTemplate.execute(status -> {
+                UserResponse created = userService.createUser(request);
+                repository.saveAndFlush(new IdempotencyKey(key, requestHash, write(created)));
+                return created;
+            });
+            return new Result(user, false);
+        } catch (ConflictException | DataIntegrityViolationException e) {
+            // A request with the same key on another node may have committed meanwhile and taken the email.
+            stored = findStored(key);
+            if (stored == null) {
+                throw e;
+            }
+            return replay(stored, requestHash);
+        }
+    }
+
+    /**
+     * Looks the key up in a read-write transaction, which keeps it on the primary: a replica may
+     * not have the key yet when a retry arrives right after the first request committed.
+     */
+    private IdempotencyKey findStored(String key) {
+        return transactionTemplate.execute(status -> repository.findById(key).orElse(null));
+    }
+
+    private Result replay(IdempotencyKey stored, String requestHash) {
+        checkSameRequest(stored.getRequestHash(), requestHash);
+        replayedFromDatabase.increment();
+        return new Result(read(stored.getResponse()), true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:1m}")
+    public void purgeExpired() {
+        Date cutoff = new Date(System.currentTimeMillis() - properties.ttl().toMillis());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = repository.deleteCreatedBefore(cutoff, properties.purgeBatchSize());
+            total += deleted;
+        } while (deleted == properties.purgeBatchSize());
+        if (total > 0) {
+            purged.increment(total);
+            logger.debug("Purged {} expired idempotency keys", total);
+        }
+    }
+
+    /**
+     * SHA-256 of the request as the service sees it, so retries that differ only in email case or
+     * surrounding spaces still match.
+     */
+    static String requestHash(CreateUserRequest request) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        String email = request.email() == null ? null : request.email().trim().toLowerCase();
+        String canonical = request.name() + '\0' + email + '\0' + request.age();
+        return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private boolean isExpired(IdempotencyKey stored) {
+        return stored.getCreatedAt().getTime() < System.currentTimeMillis() - properties.ttl().toMillis();
+    }
+
+    private static void checkSameRequest(String expectedHash, String requestHash) {
+        if (!expectedHash.equals(requestHash)) {
+            throw new UnprocessableEntityException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private static UserResponse await(CompletableFuture<UserResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String write(UserResponse user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize user response", e);
+        }
+    }
+
+    private UserResponse read(String response) {
+        try {
+            return objectMapper.readValue(response, UserResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored user response", e);
+        }
+    }
+}
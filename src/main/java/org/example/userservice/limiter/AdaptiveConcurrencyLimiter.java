@@ -0,0 +1,139 @@
+package org.example.userservice.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows latency, in the manner of the gradient limiters of TCP Vegas and
+ * Netflix concurrency-limits. Latencies are averaged over windows of at least {@code window} and
+ * {@value #MIN_WINDOW_SAMPLES} requests, and two moving averages of the windows are kept: a short
+ * one for the last few windows and a long one for the last few hundred. Averaging windows rather
+ * than single requests keeps the long average from catching up with an overload within seconds
+ * at high request rates.
+ * <p>
+ * While the short average stays within {@code tolerance} of the long one the limit grows by about
+ * its square root, which leaves room for a small queue. When latency rises past that, the limit
+ * shrinks in proportion, so requests are refused before they pile up in front of the connection
+ * pool. The limit only grows while at least half of it is in use: a lightly loaded service says
+ * nothing about how much more it could take.
+ */
+final class AdaptiveConcurrencyLimiter {
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double SHORT_DECAY = 2.0 / (10 + 1);
+    private static final double LONG_DECAY = 2.0 / (600 + 1);
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this.
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = window.toNanos();
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return a permit to release when the request completes, or {@code null} if the limit is reached
+     */
+    Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Permit(System.nanoTime(), current + 1);
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        long now = System.nanoTime();
+        if (now - windowStart < windowNanos || windowSamples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        update((double) windowRttSum / windowSamples, windowMaxInFlight);
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+
+    private void update(double rttNanos, int maxInFlight) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_DECAY;
+        longRtt += (rttNanos - longRtt) * LONG_DECAY;
+        // After an overload the long average lags far behind; let it catch up with the recovered latency.
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * @param sample whether the latency of the request should adjust the limit; long-lived
+         *               requests such as streams would only distort it
+         */
+        void release(boolean sample) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            if (sample) {
+                onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+    }
+}
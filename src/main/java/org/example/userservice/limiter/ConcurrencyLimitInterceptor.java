@@ -0,0 +1,86 @@
+package org.example.userservice.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.userservice.exception.types.ServiceUnavailableException;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Admits requests within the adaptive limit of their kind, reads or writes, and rejects the rest
+ * with {@link ServiceUnavailableException} before any work is done. The permit is held until the
+ * request completes, including the asynchronous part of streamed responses, but only requests
+ * completed in one dispatch feed their latency to the limit.
+ */
+class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+    static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+    private static final String ASYNC = ConcurrencyLimitInterceptor.class.getName() + ".async";
+
+    private final AdaptiveConcurrencyLimiter reads;
+    private final AdaptiveConcurrencyLimiter writes;
+    private final ConcurrencyLimitProperties properties;
+
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+
+    ConcurrencyLimitInterceptor(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.reads = limiter(properties.read(), properties);
+        this.writes = limiter(properties.write(), properties);
+        this.readsRejected = register(meterRegistry, "read", reads);
+        this.writesRejected = register(meterRegistry, "write", writes);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(ConcurrencyLimitProperties.Limit limit,
+                                                      ConcurrencyLimitProperties properties) {
+        return new AdaptiveConcurrencyLimiter(limit.initial(), limit.min(), limit.max(), properties.tolerance(),
+                properties.window());
+    }
+
+    private static Counter register(MeterRegistry meterRegistry, String kind, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("user.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive limit of concurrent requests")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        Gauge.builder("user.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requests currently holding a permit")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        return Counter.builder("user.concurrency.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The dispatch that completes an asynchronous request still holds the permit of the first one.
+        if (request.getAttribute(PERMIT) != null) {
+            return true;
+        }
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        AdaptiveConcurrencyLimiter.Permit permit = (read ? reads : writes).tryAcquire();
+        if (permit == null) {
+            (read ? readsRejected : writesRejected).increment();
+            throw new ServiceUnavailableException("Too many concurrent requests, retry later", properties.retryAfter());
+        }
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(ASYNC, Boolean.TRUE);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            request.removeAttribute(PERMIT);
+            permit.release(request.getAttribute(ASYNC) == null);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.userservice.limiter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits of the {@code /users} API. Whether the limits apply at all is read
+ * directly by {@link ConcurrencyLimitConfig} from {@code app.concurrency-limit.enabled}.
+ *
+ * @param read       limit of GET and HEAD requests
+ * @param write      limit of all other requests
+ * @param tolerance  how many times the recent latency may exceed the long-term one before the limit shrinks
+ * @param window     shortest period whose requests are averaged into one latency sample
+ * @param retryAfter {@code Retry-After} sent with rejected requests
+ */
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public record ConcurrencyLimitProperties(
+        @DefaultValue
+        Limit read,
+
+        @DefaultValue
+        Limit write,
+
+        @DefaultValue("1.5")
+        double tolerance,
+
+        @DefaultValue("100ms")
+        Duration window,
+
+        @DefaultValue("1s")
+        Duration retryAfter
+) {
+    public record Limit(
+            @DefaultValue("20")
+            int initial,
+
+            @DefaultValue("4")
+            int min,
+
+            @DefaultValue("200")
+            int max
+    ) {
+    }
+}
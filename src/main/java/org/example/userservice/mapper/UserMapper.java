@@ -16,7 +16,8 @@ public final class UserMapper {
                 user.getEmail(),
                 user.getAge(),
                 user.getCreatedAt(),
-                user.getUpdatedAt()
+                user.getUpdatedAt(),
+                user.getVersion()
         );
     }
 
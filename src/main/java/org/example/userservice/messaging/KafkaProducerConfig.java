@@ -1,13 +1,16 @@
 package org.example.userservice.messaging;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.example.userservice.events.UserEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
@@ -17,18 +20,42 @@ import java.util.Map;
 @Configuration
 public class KafkaProducerConfig {
     @Bean
-    public ProducerFactory<String, UserEvent> producerFactory(ObjectMapper mapper) {
-        Map<String, Object> configProperties = new HashMap<>();
-        configProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "kafka:9092");
-
-        JsonSerializer<UserEvent> jsonSerializer = new JsonSerializer<>(mapper);
-        jsonSerializer.setAddTypeInfo(false);
-
-        return new DefaultKafkaProducerFactory<>(configProperties, new StringSerializer(), jsonSerializer);
+    public ProducerFactory<String, UserEvent> producerFactory(ObjectMapper mapper, KafkaProducerProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        DefaultKafkaProducerFactory<String, UserEvent> producerFactory =
+                new DefaultKafkaProducerFactory<>(producerConfig(properties), new StringSerializer(),
+                        userEventSerializer(mapper, properties.formats()));
+        // Client metrics: batch sizes, record queue time, request latency, buffer exhaustion.
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
     }
 
     @Bean
     public KafkaTemplate<String, UserEvent> kafkaTemplate(ProducerFactory<String, UserEvent> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
     }
+
+    static Serializer<UserEvent> userEventSerializer(ObjectMapper mapper, Map<String, UserEventFormat> formats) {
+        return new UserEventSerializer(jsonSerializer(mapper), formats);
+    }
+
+    static JsonSerializer<UserEvent> jsonSerializer(ObjectMapper mapper) {
+        JsonSerializer<UserEvent> jsonSerializer = new JsonSerializer<>(mapper);
+        jsonSerializer.setAddTypeInfo(false);
+        return jsonSerializer;
+    }
+
+    static Map<String, Object> producerConfig(KafkaProducerProperties properties) {
+        Map<String, Object> configProperties = new HashMap<>();
+        configProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.bootstrapServers());
+        configProperties.put(ProducerConfig.LINGER_MS_CONFIG, (int) properties.linger().toMillis());
+        configProperties.put(ProducerConfig.BATCH_SIZE_CONFIG, (int) properties.batchSize().toBytes());
+        configProperties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, properties.compressionType());
+        configProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, properties.idempotence());
+        if (properties.idempotence()) {
+            configProperties.put(ProducerConfig.ACKS_CONFIG, "all");
+            configProperties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        }
+        return configProperties;
+    }
 }
@@ -0,0 +1,58 @@
+package org.example.userservice.messaging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the user event producer. The first group is passed to the Kafka client, the second
+ * one bounds how many sends {@link UserKafkaProducer} keeps in flight. {@code formats} maps topics
+ * to the {@link UserEventFormat} their events are written in; other topics get JSON.
+ */
+@ConfigurationProperties(prefix = "app.kafka.producer")
+public record KafkaProducerProperties(
+        @DefaultValue("kafka:9092")
+        String bootstrapServers,
+
+        @DefaultValue("5ms")
+        Duration linger,
+
+        @DefaultValue("64KB")
+        DataSize batchSize,
+
+        @DefaultValue("lz4")
+        String compressionType,
+
+        @DefaultValue("true")
+        boolean idempotence,
+
+        @DefaultValue("1000")
+        int maxInFlight,
+
+        @DefaultValue("BLOCK")
+        BackpressurePolicy backpressure,
+
+        @DefaultValue("5s")
+        Duration blockTimeout,
+
+        @DefaultValue("10000")
+        int spillCapacity,
+
+        @DefaultValue
+        Map<String, UserEventFormat> formats
+) {
+    /**
+     * What a send does when {@code maxInFlight} sends are already waiting for an acknowledgement.
+     */
+    public enum BackpressurePolicy {
+        /** Wait up to {@code blockTimeout} for a free slot, then fail the send. */
+        BLOCK,
+        /** Fail the send immediately. */
+        DROP,
+        /** Queue the send in memory, up to {@code spillCapacity}, and dispatch it when a slot frees up. */
+        SPILL
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.userservice.messaging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the user event outbox relay. The poll interval is read directly by
+ * {@link OutboxRelay} from {@code app.outbox.poll-interval}.
+ */
+@ConfigurationProperties(prefix = "app.outbox")
+public record OutboxProperties(
+        @DefaultValue("100")
+        int batchSize,
+
+        @DefaultValue("10s")
+        Duration sendTimeout
+) {
+}
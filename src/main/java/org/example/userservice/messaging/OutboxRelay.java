@@ -0,0 +1,152 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.example.userservice.domain.OutboxEvent;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.example.userservice.repository.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes pending outbox rows to Kafka in batches. A batch is sent without waiting for each
+ * record, then the acknowledged prefix is deleted; the rest stays in the table and is retried on
+ * the next poll, so delivery is at least once and in outbox order.
+ * <p>
+ * The state of every user in the batch after its last row also goes to the compacted state
+ * topic. A row counts as acknowledged once its event and, for the last row of each user, that
+ * user's state are acknowledged.
+ * <p>
+ * Relays on several instances lock the same oldest rows, so they take turns; relaying in
+ * parallel could let a later event or state of a user overtake an earlier one.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", matchIfMissing = true)
+public class OutboxRelay {
+    private final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final UserKafkaProducer userKafkaProducer;
+    private final UserStatePublisher userStatePublisher;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter relayed;
+    private final Counter failed;
+
+    public OutboxRelay(OutboxRepository outboxRepository, UserKafkaProducer userKafkaProducer,
+                       UserStatePublisher userStatePublisher, ObjectMapper objectMapper,
+                       OutboxProperties properties, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.userKafkaProducer = userKafkaProducer;
+        this.userStatePublisher = userStatePublisher;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        TimeGauge.builder("user.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest event waiting in the outbox")
+                .register(meterRegistry);
+        this.relayed = Counter.builder("user.outbox.relayed")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("user.outbox.failed")
+                .description("Outbox events that Kafka did not acknowledge")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:500ms}")
+    @Transactional
+    public void relay() {
+        List<OutboxEvent> batch = outboxRepository.findByOrderByIdAsc(Limit.of(properties.batchSize()));
+        if (batch.isEmpty()) {
+            lagMillis.set(0);
+            return;
+        }
+        lagMillis.set(Math.max(0, System.currentTimeMillis() - batch.getFirst().getCreatedAt().getTime()));
+
+        List<UserEvent> events = new ArrayList<>(batch.size());
+        Map<Long, Integer> lastRowOfUser = new HashMap<>();
+        for (OutboxEvent event : batch) {
+            UserEvent userEvent = read(event);
+            // Rows enqueued before states were recorded only have their event to relay.
+            if (userEvent.getUserId() != null
+                    && (event.getState() != null || userEvent.getOperation() == OperationType.DELETE)) {
+                lastRowOfUser.put(userEvent.getUserId(), events.size());
+            }
+            events.add(userEvent);
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (int i = 0; i < events.size(); i++) {
+            UserEvent userEvent = events.get(i);
+            CompletableFuture<?> send = userKafkaProducer.sendUserToKafka(userEvent);
+            // Null for users that only have rows without a state in this batch.
+            Integer lastRow = lastRowOfUser.get(userEvent.getUserId());
+            if (lastRow != null && lastRow == i) {
+                send = CompletableFuture.allOf(send,
+                        userStatePublisher.publish(userEvent.getUserId(), readState(batch.get(i))));
+            }
+            sends.add(send);
+        }
+
+        List<OutboxEvent> acked = new ArrayList<>(batch.size());
+        long deadline = System.nanoTime() + properties.sendTimeout().toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acked.add(batch.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                failed.increment(batch.size() - i);
+                logger.warn("Outbox relay stopped at event id={}, will retry", batch.get(i).getId(), e);
+                break;
+            }
+        }
+
+        if (!acked.isEmpty()) {
+            outboxRepository.deleteAllInBatch(acked);
+            relayed.increment(acked.size());
+        }
+    }
+
+    private UserEvent read(OutboxEvent event) {
+        try {
+            return objectMapper.readValue(event.getPayload(), UserEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read outbox event id=" + event.getId(), e);
+        }
+    }
+
+    private UserResponse readState(OutboxEvent event) {
+        if (event.getState() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(event.getState(), UserResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read user state of outbox event id=" + event.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.userservice.messaging;
+
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of {@link UserEvent}:
+ * <pre>
+ * event  = magic:0x00  version:varint  field*
+ * field  = key:varint  (value:varint | length:varint  bytes)
+ * key    = number &lt;&lt; 3 | wire type (0 varint, 2 length-delimited)
+ * </pre>
+ * Varints are unsigned LEB128, signed values are zigzag-encoded first, strings are UTF-8 and
+ * absent fields are omitted. JSON never starts with a zero byte, so a reader can tell both
+ * formats apart by the first byte.
+ * <p>
+ * New fields get new numbers and do not change the version: readers skip numbers they do not
+ * know. The version is bumped only when an existing field changes meaning, and readers refuse
+ * versions newer than {@link #SCHEMA_VERSION}. Field numbers and operation codes are never
+ * reused.
+ */
+public final class UserEventCodec {
+    public static final byte MAGIC = 0;
+    public static final int SCHEMA_VERSION = 1;
+
+    static final int OPERATION = 1;
+    static final int EMAIL = 2;
+    static final int USER_ID = 3;
+    static final int NAME = 4;
+    static final int AGE = 5;
+    static final int VERSION = 6;
+
+    static final int VARINT = 0;
+    static final int LENGTH_DELIMITED = 2;
+
+    private UserEventCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(UserEvent event) {
+        int operation = event.getOperation() == null ? 0 : operationCode(event.getOperation());
+        String email = event.getEmail();
+        int emailLength = email == null ? 0 : utf8Length(email);
+        String name = event.getName();
+        int nameLength = name == null ? 0 : utf8Length(name);
+
+        int size = 1 + varintSize(SCHEMA_VERSION);
+        if (operation != 0) {
+            size += varintSize(key(OPERATION, VARINT)) + varintSize(operation);
+        }
+        if (email != null) {
+            size += varintSize(key(EMAIL, LENGTH_DELIMITED)) + varintSize(emailLength) + emailLength;
+        }
+        if (event.getUserId() != null) {
+            size += varintSize(key(USER_ID, VARINT)) + varintSize(event.getUserId());
+        }
+        if (name != null) {
+            size += varintSize(key(NAME, LENGTH_DELIMITED)) + varintSize(nameLength) + nameLength;
+        }
+        if (event.getAge() != null) {
+            size += varintSize(key(AGE, VARINT)) + varintSize(zigZag(event.getAge()));
+        }
+        if (event.getVersion() != null) {
+            size += varintSize(key(VERSION, VARINT)) + varintSize(event.getVersion());
+        }
+
+        byte[] out = new byte[size];
+        out[0] = MAGIC;
+        int position = writeVarint(out, 1, SCHEMA_VERSION);
+        if (operation != 0) {
+            position = writeVarint(out, position, key(OPERATION, VARINT));
+            position = writeVarint(out, position, operation);
+        }
+        if (email != null) {
+            position = writeVarint(out, position, key(EMAIL, LENGTH_DELIMITED));
+            position = writeVarint(out, position, emailLength);
+            position = writeUtf8(email, out, position);
+        }
+        if (event.getUserId() != null) {
+            position = writeVarint(out, position, key(USER_ID, VARINT));
+            position = writeVarint(out, position, event.getUserId());
+        }
+        if (name != null) {
+            position = writeVarint(out, position, key(NAME, LENGTH_DELIMITED));
+            position = writeVarint(out, position, nameLength);
+            position = writeUtf8(name, out, position);
+        }
+        if (event.getAge() != null) {
+            position = writeVarint(out, position, key(AGE, VARINT));
+            position = writeVarint(out, position, zigZag(event.getAge()));
+        }
+        if (event.getVersion() != null) {
+            position = writeVarint(out, position, key(VERSION, VARINT));
+            writeVarint(out, position, event.getVersion());
+        }
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is not a user event of a known version
+     */
+    public static UserEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary user event");
+        }
+        Reader reader = new Reader(data, 1);
+        long version = reader.varint();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IllegalArgumentException("Unsupported user event schema version " + version);
+        }
+        UserEvent event = new UserEvent();
+        while (reader.position < data.length) {
+            long key = reader.varint();
+            int number = (int) (key >>> 3);
+            int wireType = (int) (key & 7);
+            if (number == OPERATION && wireType == VARINT) {
+                event.setOperation(operation(reader.varint()));
+            } else if (number == EMAIL && wireType == LENGTH_DELIMITED) {
+                event.setEmail(reader.string());
+            } else if (number == USER_ID && wireType == VARINT) {
+                event.setUserId(reader.varint());
+            } else if (number == NAME && wireType == LENGTH_DELIMITED) {
+                event.setName(reader.string());
+            } else if (number == AGE && wireType == VARINT) {
+                long age = reader.varint();
+                event.setAge((int) (age >>> 1 ^ -(age & 1)));
+            } else if (number == VERSION && wireType == VARINT) {
+                event.setVersion(reader.varint());
+            } else {
+                reader.skip(wireType);
+            }
+        }
+        return event;
+    }
+
+    private static int operationCode(OperationType operation) {
+        return switch (operation) {
+            case CREATE -> 1;
+            case DELETE -> 2;
+            case UPDATE -> 3;
+        };
+    }
+
+    /**
+     * Operation of a code, or {@code null} for a code added by a newer writer.
+     */
+    private static OperationType operation(long code) {
+        return switch ((int) code) {
+            case 1 -> OperationType.CREATE;
+            case 2 -> OperationType.DELETE;
+            case 3 -> OperationType.UPDATE;
+            default -> null;
+        };
+    }
+
+    /**
+     * Maps signed values to unsigned ones so that small negatives stay short: 0, -1, 1, -2 ...
+     * become 0, 1, 2, 3 ...
+     */
+    private static long zigZag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    private static int key(int number, int wireType) {
+        return number << 3 | wireType;
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Length of the UTF-8 form of {@code value}, matching {@link String#getBytes} with
+     * {@link StandardCharsets#UTF_8}: an unpaired surrogate becomes {@code '?'}.
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 1;
+            }
+        }
+        return length;
+    }
+
+    private static int writeUtf8(String value, byte[] out, int position) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | c >> 6);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                out[position++] = (byte) (0xE0 | c >> 12);
+                out[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | codePoint >> 18);
+                out[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                out[position++] = '?';
+            }
+        }
+        return position;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Truncated user event");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in user event");
+        }
+
+        String string() {
+            int length = length();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        int length() {
+            long length = varint();
+            if (length < 0) {
+                throw new IllegalArgumentException("Malformed length in user event");
+            }
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Truncated user event");
+            }
+            return (int) length;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case VARINT -> varint();
+                case LENGTH_DELIMITED -> position += length();
+                default -> throw new IllegalArgumentException("Unknown wire type " + wireType + " in user event");
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.example.userservice.events.UserEvent;
+
+import java.io.IOException;
+
+/**
+ * Reads user events written in either {@link UserEventFormat}, told apart by the first byte, so
+ * consumers keep working while a topic switches format. Kafka can create it from its class name.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+    private final ObjectMapper objectMapper;
+
+    public UserEventDeserializer() {
+        this(new ObjectMapper());
+    }
+
+    public UserEventDeserializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (UserEventCodec.isBinary(data)) {
+                return UserEventCodec.decode(data);
+            }
+            return objectMapper.readValue(data, UserEvent.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new SerializationException("Cannot read user event from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.userservice.messaging;
+
+/**
+ * Wire format of user events on a topic, chosen per topic with
+ * {@code app.kafka.producer.formats.<topic>}.
+ */
+public enum UserEventFormat {
+    /** Jackson JSON without type headers; the default for topics that are not configured. */
+    JSON,
+    /** {@link UserEventCodec} layout. Consumers need {@link UserEventDeserializer}. */
+    BINARY
+}
@@ -0,0 +1,76 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.userservice.domain.OutboxEvent;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.events.UserEvent;
+import org.example.userservice.repository.OutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records user events in the outbox table. The row is written in the caller's transaction,
+ * so an event exists only if the change that produced it was committed. {@link OutboxRelay}
+ * publishes the rows to Kafka afterwards.
+ * <p>
+ * Each row also keeps the state of the user right after its event, which the relay publishes to
+ * the state topic as it was then rather than as it is when the row is relayed.
+ */
+@Component
+public class UserEventOutbox {
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public UserEventOutbox(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records an event after which the user no longer exists.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(UserEvent userEvent) {
+        enqueue(userEvent, null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(UserEvent userEvent, UserResponse state) {
+        outboxRepository.save(toOutboxEvent(userEvent, state));
+    }
+
+    /**
+     * Records events after which their users no longer exist.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<UserEvent> userEvents) {
+        enqueueAll(userEvents, null);
+    }
+
+    /**
+     * Records events with the states of their users after them, {@code states.get(i)} being the
+     * one of {@code userEvents.get(i)}. Null states mean that the users no longer exist.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<UserEvent> userEvents, List<UserResponse> states) {
+        List<OutboxEvent> outboxEvents = new ArrayList<>(userEvents.size());
+        for (int i = 0; i < userEvents.size(); i++) {
+            outboxEvents.add(toOutboxEvent(userEvents.get(i), states == null ? null : states.get(i)));
+        }
+        outboxRepository.saveAll(outboxEvents);
+    }
+
+    private OutboxEvent toOutboxEvent(UserEvent userEvent, UserResponse state) {
+        try {
+            return new OutboxEvent(objectMapper.writeValueAsString(userEvent),
+                    state == null ? null : objectMapper.writeValueAsString(state));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize user event", e);
+        }
+    }
+}
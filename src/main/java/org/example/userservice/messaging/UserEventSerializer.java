@@ -0,0 +1,35 @@
+package org.example.userservice.messaging;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.userservice.events.UserEvent;
+
+import java.util.Map;
+
+/**
+ * Writes user events in the format configured for the topic, falling back to JSON.
+ */
+public class UserEventSerializer implements Serializer<UserEvent> {
+    private final Serializer<UserEvent> jsonSerializer;
+    private final Map<String, UserEventFormat> formats;
+
+    public UserEventSerializer(Serializer<UserEvent> jsonSerializer, Map<String, UserEventFormat> formats) {
+        this.jsonSerializer = jsonSerializer;
+        this.formats = Map.copyOf(formats);
+    }
+
+    @Override
+    public byte[] serialize(String topic, UserEvent data) {
+        if (data == null) {
+            return null;
+        }
+        return switch (formats.getOrDefault(topic, UserEventFormat.JSON)) {
+            case BINARY -> UserEventCodec.encode(data);
+            case JSON -> jsonSerializer.serialize(topic, data);
+        };
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
@@ -1,22 +1,185 @@
 package org.example.userservice.messaging;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.example.userservice.events.UserEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipelined publisher of user events. Sends are not awaited: the caller gets the future and the
+ * number of unacknowledged sends is bounded by {@code app.kafka.producer.max-in-flight}. When the
+ * bound is reached the configured {@link KafkaProducerProperties.BackpressurePolicy} applies.
+ * <p>
+ * Records are keyed by user id, so all events of a user go to one partition and keep the order
+ * in which they were sent.
+ * <p>
+ * Acknowledgements arrive on the Kafka I/O thread, which must not block in another send, so
+ * spilled sends are drained on the application task executor (virtual threads when
+ * {@code spring.threads.virtual.enabled} is set). At most one drain runs at a time and it takes
+ * the queue in order, so spilled events of a user cannot overtake each other.
+ */
 @Component
 public class UserKafkaProducer {
     private final Logger logger = LoggerFactory.getLogger(UserKafkaProducer.class);
     private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final KafkaProducerProperties properties;
+    private final Executor dispatchExecutor;
+
+    private final Semaphore permits;
+    private final Queue<PendingSend> spilled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger spilledCount = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
 
-    public UserKafkaProducer(KafkaTemplate<String, UserEvent> kafkaTemplate) {
+    private final Timer sendTimer;
+    private final Counter errors;
+    private final Counter rejected;
+
+    public UserKafkaProducer(KafkaTemplate<String, UserEvent> kafkaTemplate, KafkaProducerProperties properties,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("applicationTaskExecutor") Executor dispatchExecutor) {
         this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+        this.dispatchExecutor = dispatchExecutor;
+        this.permits = new Semaphore(properties.maxInFlight());
+        this.sendTimer = Timer.builder("user.kafka.send")
+                .description("Time from send to broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.errors = Counter.builder("user.kafka.send.errors")
+                .description("Sends that the broker did not acknowledge")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("user.kafka.send.rejected")
+                .description("Sends refused because too many were in flight")
+                .register(meterRegistry);
+        Gauge.builder("user.kafka.send.in-flight", permits, p -> properties.maxInFlight() - p.availablePermits())
+                .description("Sends waiting for a broker acknowledgement")
+                .register(meterRegistry);
+        Gauge.builder("user.kafka.send.spilled", spilledCount, AtomicInteger::get)
+                .description("Sends queued in memory because too many were in flight")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<SendResult<String, UserEvent>> sendUserToKafka(UserEvent userEvent) {
+        CompletableFuture<SendResult<String, UserEvent>> result = new CompletableFuture<>();
+        switch (properties.backpressure()) {
+            case BLOCK -> {
+                if (acquireBlocking()) {
+                    dispatch(new PendingSend(userEvent, result));
+                } else {
+                    reject(result);
+                }
+            }
+            case DROP -> {
+                if (permits.tryAcquire()) {
+                    dispatch(new PendingSend(userEvent, result));
+                } else {
+                    reject(result);
+                }
+            }
+            case SPILL -> {
+                // Sends queued earlier go first, or events of one user could overtake each other.
+                if (spilledCount.get() == 0 && permits.tryAcquire()) {
+                    dispatch(new PendingSend(userEvent, result));
+                } else if (spilledCount.incrementAndGet() > properties.spillCapacity()) {
+                    spilledCount.decrementAndGet();
+                    reject(result);
+                } else {
+                    spilled.add(new PendingSend(userEvent, result));
+                    // A slot may have been released between tryAcquire and add.
+                    drain();
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean acquireBlocking() {
+        try {
+            return permits.tryAcquire(properties.blockTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(CompletableFuture<SendResult<String, UserEvent>> result) {
+        rejected.increment();
+        result.completeExceptionally(new RejectedExecutionException(
+                "Too many user events in flight: " + properties.maxInFlight()));
+    }
+
+    /**
+     * Sends one event on a permit the caller already holds. The permit is released once the
+     * broker answers, and the spilled sends are drained if there are any.
+     */
+    private void dispatch(PendingSend send) {
+        Timer.Sample sample = Timer.start();
+        CompletableFuture<SendResult<String, UserEvent>> future;
+        try {
+            Long userId = send.event().getUserId();
+            future = kafkaTemplate.send("users", userId == null ? null : userId.toString(), send.event());
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((sendResult, exception) -> {
+            sample.stop(sendTimer);
+            if (exception != null) {
+                errors.increment();
+                logger.warn("User event was not sent to kafka: operation={}", send.event().getOperation(), exception);
+                send.result().completeExceptionally(exception);
+            } else {
+                logger.debug("User sent to kafka: id={}", send.event().getUserId());
+                send.result().complete(sendResult);
+            }
+            permits.release();
+            if (!spilled.isEmpty()) {
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Runs the drain loop unless it is running already, in which case it goes round once more.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() == 0) {
+            dispatchExecutor.execute(this::drainLoop);
+        }
+    }
+
+    private void drainLoop() {
+        int requests = drainRequests.get();
+        do {
+            while (!spilled.isEmpty() && permits.tryAcquire()) {
+                PendingSend next = spilled.poll();
+                if (next == null) {
+                    permits.release();
+                    break;
+                }
+                dispatch(next);
+                // Only now, or a new send could take the fast path ahead of the one just polled.
+                spilledCount.decrementAndGet();
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
     }
 
-    public void sendUserToKafka(UserEvent userEvent) {
-        kafkaTemplate.send("users", userEvent);
-        logger.info("User sent to kafka: id={}", userEvent.getEmail());
+    private record PendingSend(UserEvent event, CompletableFuture<SendResult<String, UserEvent>> result) {
     }
 }
@@ -0,0 +1,54 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.userservice.dto.UserResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/**
+ * Kafka clients of the user state topic. The topic is created as log-compacted, so Kafka keeps
+ * the latest record of every user and drops users whose latest record is a tombstone.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", matchIfMissing = true)
+public class UserStateConfig {
+
+    @Bean
+    public KafkaAdmin kafkaAdmin(KafkaProducerProperties producerProperties) {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, producerProperties.bootstrapServers()));
+    }
+
+    @Bean
+    public NewTopic userStateTopic(UserStateProperties properties) {
+        return TopicBuilder.name(properties.topic())
+                .partitions(properties.partitions())
+                .compact()
+                .build();
+    }
+
+    @Bean
+    public KafkaTemplate<String, UserResponse> userStateTemplate(ObjectMapper mapper,
+                                                                 KafkaProducerProperties producerProperties,
+                                                                 MeterRegistry meterRegistry) {
+        JsonSerializer<UserResponse> jsonSerializer = new JsonSerializer<>(mapper);
+        jsonSerializer.setAddTypeInfo(false);
+
+        DefaultKafkaProducerFactory<String, UserResponse> producerFactory = new DefaultKafkaProducerFactory<>(
+                KafkaProducerConfig.producerConfig(producerProperties), new StringSerializer(), jsonSerializer);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
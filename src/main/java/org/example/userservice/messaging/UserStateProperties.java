@@ -0,0 +1,24 @@
+package org.example.userservice.messaging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * The log-compacted topic that holds the current state of every user.
+ *
+ * @param topic      topic name; it is created with {@code cleanup.policy=compact} if missing
+ * @param partitions partitions of the topic when it is created
+ * @param backfill   publish every existing user once at startup, to seed a new topic
+ */
+@ConfigurationProperties(prefix = "app.kafka.state")
+public record UserStateProperties(
+        @DefaultValue("user-state")
+        String topic,
+
+        @DefaultValue("6")
+        int partitions,
+
+        @DefaultValue("false")
+        boolean backfill
+) {
+}
@@ -0,0 +1,100 @@
+package org.example.userservice.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the state of users to the compacted {@code app.kafka.state.topic}, keyed by user id:
+ * the {@link UserResponse} of a live user, a tombstone for a deleted one. {@link OutboxRelay}
+ * passes the state recorded with the user's last relayed event, so records follow the order of
+ * the events and the topic converges to the latest state of every user.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", matchIfMissing = true)
+public class UserStatePublisher {
+    private final Logger logger = LoggerFactory.getLogger(UserStatePublisher.class);
+
+    private final KafkaTemplate<String, UserResponse> userStateTemplate;
+    private final UserRepository userRepository;
+    private final UserStateProperties properties;
+
+    private final Counter published;
+    private final Counter tombstones;
+
+    public UserStatePublisher(KafkaTemplate<String, UserResponse> userStateTemplate, UserRepository userRepository,
+                              UserStateProperties properties, MeterRegistry meterRegistry) {
+        this.userStateTemplate = userStateTemplate;
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.published = Counter.builder("user.state.published")
+                .description("User state records sent to the compacted state topic")
+                .register(meterRegistry);
+        this.tombstones = Counter.builder("user.state.tombstones")
+                .description("Tombstones sent to the compacted state topic for deleted users")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the state of a user, or a tombstone when {@code state} is null.
+     */
+    public CompletableFuture<SendResult<String, UserResponse>> publish(Long userId, UserResponse state) {
+        if (state == null) {
+            tombstones.increment();
+        }
+        return send(userId, state);
+    }
+
+    /**
+     * Seeds the topic with every existing user when {@code app.kafka.state.backfill} is set.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void backfill() {
+        if (!properties.backfill()) {
+            return;
+        }
+        long sent = 0;
+        AtomicLong failed = new AtomicLong();
+        try (Stream<UserResponse> users = userRepository.streamAllResponses()) {
+            Iterator<UserResponse> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                UserResponse user = iterator.next();
+                send(user.id(), user).whenComplete((result, exception) -> {
+                    if (exception != null) {
+                        failed.incrementAndGet();
+                    }
+                });
+                sent++;
+            }
+        }
+        userStateTemplate.flush();
+        logger.info("User state topic backfilled: {} users sent, {} failed", sent, failed.get());
+    }
+
+    private CompletableFuture<SendResult<String, UserResponse>> send(Long userId, UserResponse state) {
+        try {
+            CompletableFuture<SendResult<String, UserResponse>> future =
+                    userStateTemplate.send(properties.topic(), userId.toString(), state);
+            published.increment();
+            return future;
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.example.userservice.repository;
+
+public record DeletedUser(Long id, String email, Long version) {
+}
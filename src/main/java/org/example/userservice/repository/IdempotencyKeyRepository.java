@@ -0,0 +1,22 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Deletes at most {@code limit} keys created before {@code cutoff}, in a transaction of its
+     * own, so a large backlog is purged without holding locks on all of it at once.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from idempotency_keys where idempotency_key in "
+            + "(select idempotency_key from idempotency_keys where created_at < :cutoff limit :limit)")
+    int deleteCreatedBefore(Date cutoff, int limit);
+}
@@ -0,0 +1,19 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.userservice.domain.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest pending events. A relay on another instance waits for the rows instead of
+     * skipping them, so relays run one after another and the events of a user keep their order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<OutboxEvent> findByOrderByIdAsc(Limit limit);
+}
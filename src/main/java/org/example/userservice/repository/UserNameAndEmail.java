@@ -0,0 +1,4 @@
+package org.example.userservice.repository;
+
+public record UserNameAndEmail(Long id, String name, String email) {
+}
@@ -1,8 +1,62 @@
 package org.example.userservice.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    String SELECT_USER_RESPONSE = "select new org.example.userservice.dto.UserResponse("
+            + "u.id, u.name, u.email, u.age, u.createdAt, u.updatedAt, u.version) from User u";
 
-public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsUserByEmail(String email);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    // Read-only so that it runs on a replica: UserService.readUser calls it without a transaction.
+    @Transactional(readOnly = true)
+    @Query(SELECT_USER_RESPONSE + " where u.id = :id")
+    Optional<UserResponse> findResponseById(Long id);
+
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query(SELECT_USER_RESPONSE + " order by u.id")
+    List<UserResponse> findResponses(Limit limit);
+
+    @Query(SELECT_USER_RESPONSE + " where u.id > :id order by u.id")
+    List<UserResponse> findResponsesAfter(Long id, Limit limit);
+
+    @Query(SELECT_USER_RESPONSE + " where u.id < :id order by u.id desc")
+    List<UserResponse> findResponsesBefore(Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAllOrderById();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_USER_RESPONSE + " order by u.id")
+    Stream<UserResponse> streamAllResponses();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new org.example.userservice.repository.UserNameAndEmail(u.id, u.name, u.email) from User u")
+    Stream<UserNameAndEmail> streamAllNamesAndEmails();
 }
@@ -0,0 +1,31 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Deletes the users with the given ids in one statement and returns the ones that existed.
+     * The persistence context is bypassed, so the users must not be loaded in the same session.
+     */
+    List<DeletedUser> deleteAllByIdReturning(Collection<Long> ids);
+
+    /**
+     * Users matching every given filter with ids above {@code after}, ordered by id.
+     */
+    List<UserResponse> search(UserSearchFilter filter, Long after, int limit);
+
+    /**
+     * Writes the non-null fields of a user in one statement, bumps its version and returns the
+     * updated row. When {@code expectedVersions} is not null the row is only updated if its
+     * version is one of them. Empty if no row was updated.
+     */
+    Optional<UserResponse> updateReturning(Long id, String name, String email, Integer age, Date updatedAt,
+                                           Collection<Long> expectedVersions);
+}
@@ -0,0 +1,240 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TemporalType;
+import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * PostgreSQL returns the changed rows with {@code DELETE/UPDATE ... RETURNING}, and H2 with
+ * {@code OLD TABLE}/{@code FINAL TABLE} delta tables. Other databases fall back to a separate
+ * select around the change.
+ */
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final String DELETE_RETURNING =
+            "delete from users where id in (:ids) returning id, email, version";
+    private static final String DELETE_FROM_OLD_TABLE =
+            "select id, email, version from old table (delete from users where id in (:ids))";
+    private static final String USER_COLUMNS = "id, name, email, age, created_at, updated_at, version";
+
+    private final EntityManager entityManager;
+    private volatile Dialect dialect;
+
+    UserRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<DeletedUser> deleteAllByIdReturning(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Dialect dialect = dialect();
+        if (dialect instanceof PostgreSQLDialect) {
+            return deleted(DELETE_RETURNING, ids);
+        }
+        if (dialect instanceof H2Dialect) {
+            return deleted(DELETE_FROM_OLD_TABLE, ids);
+        }
+        List<DeletedUser> deleted = deleted("select id, email, version from users where id in (:ids) for update", ids);
+        entityManager.createNativeQuery("delete from users where id in (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return deleted;
+    }
+
+    @Override
+    public Optional<UserResponse> updateReturning(Long id, String name, String email, Integer age, Date updatedAt,
+                                                  Collection<Long> expectedVersions) {
+        StringBuilder update = new StringBuilder("update users set version = version + 1, updated_at = :updatedAt");
+        if (name != null) {
+            update.append(", name = :name");
+        }
+        if (email != null) {
+            update.append(", email = :email, email_domain = :emailDomain");
+        }
+        if (age != null) {
+            update.append(", age = :age");
+        }
+        update.append(" where id = :id");
+        if (expectedVersions != null) {
+            if (expectedVersions.isEmpty()) {
+                return Optional.empty();
+            }
+            update.append(" and version in (:versions)");
+        }
+
+        Dialect dialect = dialect();
+        String sql;
+        if (dialect instanceof PostgreSQLDialect) {
+            sql = update + " returning " + USER_COLUMNS;
+        } else if (dialect instanceof H2Dialect) {
+            sql = "select " + USER_COLUMNS + " from final table (" + update + ")";
+        } else {
+            int updated = bind(entityManager.createNativeQuery(update.toString()), id, name, email, age, updatedAt,
+                    expectedVersions).executeUpdate();
+            if (updated == 0) {
+                return Optional.empty();
+            }
+            sql = "select " + USER_COLUMNS + " from users where id = :id";
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = entityManager.createNativeQuery(sql).setParameter("id", id).getResultList();
+            return rows.stream().findFirst().map(UserRepositoryCustomImpl::toResponse);
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = bind(entityManager.createNativeQuery(sql), id, name, email, age, updatedAt,
+                expectedVersions).getResultList();
+        return rows.stream().findFirst().map(UserRepositoryCustomImpl::toResponse);
+    }
+
+    @Override
+    public List<UserResponse> search(UserSearchFilter filter, Long after, int limit) {
+        SearchQuery searchQuery = searchQuery(filter, after, limit);
+        Query query = entityManager.createNativeQuery(searchQuery.sql());
+        searchQuery.parameters().forEach(query::setParameter);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        List<UserResponse> users = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            users.add(toResponse(row));
+        }
+        return users;
+    }
+
+    record SearchQuery(String sql, Map<String, Object> parameters) {
+    }
+
+    /**
+     * Compiles the filter into one parameterized statement. Every filter maps to a range or
+     * equality predicate on an indexed column, see the indexes of {@link User}.
+     */
+    static SearchQuery searchQuery(UserSearchFilter filter, Long after, int limit) {
+        StringBuilder sql = new StringBuilder("select " + USER_COLUMNS + " from users where 1 = 1");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (filter.namePrefix() != null) {
+            sql.append(" and name like :namePrefix escape '!'");
+            parameters.put("namePrefix", escapeLike(filter.namePrefix()) + "%");
+        }
+        if (filter.emailDomain() != null) {
+            sql.append(" and email_domain = :emailDomain");
+            parameters.put("emailDomain", User.domainOf(filter.emailDomain()));
+        }
+        if (filter.minAge() != null) {
+            sql.append(" and age >= :minAge");
+            parameters.put("minAge", filter.minAge());
+        }
+        if (filter.maxAge() != null) {
+            sql.append(" and age <= :maxAge");
+            parameters.put("maxAge", filter.maxAge());
+        }
+        if (filter.createdFrom() != null) {
+            sql.append(" and created_at >= :createdFrom");
+            parameters.put("createdFrom", Timestamp.from(filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            sql.append(" and created_at < :createdTo");
+            parameters.put("createdTo", Timestamp.from(filter.createdTo()));
+        }
+        if (filter.updatedFrom() != null) {
+            sql.append(" and updated_at >= :updatedFrom");
+            parameters.put("updatedFrom", Timestamp.from(filter.updatedFrom()));
+        }
+        if (filter.updatedTo() != null) {
+            sql.append(" and updated_at < :updatedTo");
+            parameters.put("updatedTo", Timestamp.from(filter.updatedTo()));
+        }
+        if (after != null) {
+            sql.append(" and id > :after");
+            parameters.put("after", after);
+        }
+        sql.append(" order by id fetch first ").append(limit).append(" rows only");
+        return new SearchQuery(sql.toString(), parameters);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static Query bind(Query query, Long id, String name, String email, Integer age, Date updatedAt,
+                              Collection<Long> expectedVersions) {
+        query.setParameter("id", id);
+        query.setParameter("updatedAt", updatedAt, TemporalType.TIMESTAMP);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        if (email != null) {
+            query.setParameter("email", email);
+            query.setParameter("emailDomain", User.domainOf(email));
+        }
+        if (age != null) {
+            query.setParameter("age", age);
+        }
+        if (expectedVersions != null) {
+            query.setParameter("versions", expectedVersions);
+        }
+        return query;
+    }
+
+    private static UserResponse toResponse(Object[] row) {
+        return new UserResponse(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                (String) row[2],
+                ((Number) row[3]).intValue(),
+                toDate(row[4]),
+                toDate(row[5]),
+                ((Number) row[6]).longValue());
+    }
+
+    private static Date toDate(Object value) {
+        return switch (value) {
+            case Date date -> date;
+            case LocalDateTime localDateTime -> Timestamp.valueOf(localDateTime);
+            case OffsetDateTime offsetDateTime -> Date.from(offsetDateTime.toInstant());
+            case Instant instant -> Date.from(instant);
+            default -> throw new IllegalStateException("Unexpected timestamp type: " + value.getClass());
+        };
+    }
+
+    private List<DeletedUser> deleted(String sql, Collection<Long> ids) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(sql)
+                .setParameter("ids", ids)
+                .getResultList();
+        List<DeletedUser> deleted = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            deleted.add(new DeletedUser(((Number) row[0]).longValue(), (String) row[1], ((Number) row[2]).longValue()));
+        }
+        return deleted;
+    }
+
+    private Dialect dialect() {
+        Dialect current = dialect;
+        if (current == null) {
+            current = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            dialect = current;
+        }
+        return current;
+    }
+}
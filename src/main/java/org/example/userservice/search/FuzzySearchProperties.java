@@ -0,0 +1,21 @@
+package org.example.userservice.search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Ranking of the fuzzy user search. The rebuild interval is read directly by
+ * {@link UserFuzzyIndex} from {@code app.fuzzy-search.rebuild-interval}.
+ *
+ * @param minSimilarity trigram similarity below which a user is not a candidate
+ * @param maxResults    cap on the number of candidates a query returns
+ */
+@ConfigurationProperties(prefix = "app.fuzzy-search")
+public record FuzzySearchProperties(
+        @DefaultValue("0.3")
+        double minSimilarity,
+
+        @DefaultValue("50")
+        int maxResults
+) {
+}
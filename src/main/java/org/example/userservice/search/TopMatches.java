@@ -0,0 +1,103 @@
+package org.example.userservice.search;
+
+import org.example.userservice.dto.UserMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code limit} best-scoring user ids seen so far, kept in a binary min-heap of primitive
+ * arrays so the root is the match to evict. A user offered twice keeps its higher score.
+ */
+final class TopMatches {
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    TopMatches(int limit) {
+        this.ids = new long[limit];
+        this.scores = new double[limit];
+    }
+
+    void offer(long id, double score) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                if (score > scores[i]) {
+                    scores[i] = score;
+                    siftDown(i);
+                }
+                return;
+            }
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && better(score, id, 0)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Matches from the highest score down; equal scores are ordered by id.
+     */
+    List<UserMatch> toList() {
+        List<UserMatch> matches = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            matches.add(new UserMatch(ids[i], scores[i]));
+        }
+        matches.sort((a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score())
+                : Long.compare(a.id(), b.id()));
+        return matches;
+    }
+
+    /**
+     * Whether a candidate outranks the match at {@code slot}: a higher score, or the same score
+     * and a lower id.
+     */
+    private boolean better(double score, long id, int slot) {
+        return score > scores[slot] || score == scores[slot] && id < ids[slot];
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!better(scores[parent], ids[parent], slot)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && !better(scores[left], ids[left], worst)) {
+                worst = left;
+            }
+            if (right < size && !better(scores[right], ids[right], worst)) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
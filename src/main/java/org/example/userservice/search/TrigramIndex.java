@@ -0,0 +1,340 @@
+package org.example.userservice.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Inverted index from trigrams to the users whose text contains them, ranked by Jaccard
+ * similarity of the trigram sets. Text is lower-cased and split into words on anything that is
+ * not a letter or digit; every word is padded with two leading and one trailing space, as
+ * {@code pg_trgm} does, so short words and word starts weigh more.
+ * <p>
+ * Each user gets a new ordinal whenever its text is indexed. Posting lists are {@code int[]}
+ * arrays of ordinals, appended in ascending order, so a query merges them without sorting.
+ * Replaced or removed ordinals are only marked as removed; their postings are dropped when the
+ * index is rebuilt. Trigrams and user ids live in open-addressing tables of primitive arrays.
+ * <p>
+ * Not thread-safe: {@link UserFuzzyIndex} guards it with a read-write lock.
+ */
+final class TrigramIndex {
+    private static final long NO_KEY = -1L;
+    private static final int NO_ORDINAL = -1;
+    private static final int INITIAL_POSTING_CAPACITY = 4;
+
+    private long[] gramKeys;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int gramCount;
+    private long postingCapacity;
+
+    private long[] idKeys;
+    private int[] idOrdinals;
+    private int idCount;
+
+    private long[] ordinalIds;
+    private int[] ordinalGramCounts;
+    private int ordinals;
+    private final BitSet removed = new BitSet();
+    private int live;
+
+    TrigramIndex(int expectedUsers) {
+        int capacity = Math.max(16, expectedUsers);
+        this.gramKeys = filled(tableSize(1 << 12));
+        this.postings = new int[gramKeys.length][];
+        this.postingSizes = new int[gramKeys.length];
+        this.idKeys = filled(tableSize(capacity));
+        this.idOrdinals = new int[idKeys.length];
+        this.ordinalIds = new long[capacity];
+        this.ordinalGramCounts = new int[capacity];
+    }
+
+    /**
+     * Indexes {@code text} for the user, replacing what was indexed for it before.
+     */
+    void put(long id, String text) {
+        remove(id);
+        long[] grams = trigrams(text);
+        if (grams.length == 0) {
+            return;
+        }
+        if (ordinals == ordinalIds.length) {
+            int capacity = ordinals + (ordinals >> 1);
+            ordinalIds = Arrays.copyOf(ordinalIds, capacity);
+            ordinalGramCounts = Arrays.copyOf(ordinalGramCounts, capacity);
+        }
+        int ordinal = ordinals++;
+        ordinalIds[ordinal] = id;
+        ordinalGramCounts[ordinal] = grams.length;
+        for (long gram : grams) {
+            append(gram, ordinal);
+        }
+        putOrdinal(id, ordinal);
+        live++;
+    }
+
+    void remove(long id) {
+        int slot = idSlot(id);
+        if (idKeys[slot] == NO_KEY || idOrdinals[slot] == NO_ORDINAL) {
+            return;
+        }
+        removed.set(idOrdinals[slot]);
+        idOrdinals[slot] = NO_ORDINAL;
+        live--;
+    }
+
+    /**
+     * Offers every user whose similarity to the query trigrams reaches {@code minSimilarity}.
+     * <p>
+     * Such a user shares at least {@code minShared} trigrams with the query, so it appears in at
+     * least one of the {@code lists - minShared + 1} shortest posting lists. Only those are merged
+     * to find candidates; the longest lists, usually the common word starts, are probed by
+     * galloping search for the candidates alone.
+     *
+     * @param query sorted distinct trigrams, as returned by {@link #trigrams}
+     */
+    void search(long[] query, double minSimilarity, TopMatches matches) {
+        int[][] lists = new int[query.length][];
+        int[] sizes = new int[query.length];
+        int count = 0;
+        for (long gram : query) {
+            int slot = gramSlot(gram);
+            if (gramKeys[slot] == NO_KEY) {
+                continue;
+            }
+            int[] list = postings[slot];
+            int size = postingSizes[slot];
+            int i = count++;
+            for (; i > 0 && sizes[i - 1] > size; i--) {
+                lists[i] = lists[i - 1];
+                sizes[i] = sizes[i - 1];
+            }
+            lists[i] = list;
+            sizes[i] = size;
+        }
+        int minShared = Math.max(1, (int) Math.ceil(minSimilarity * query.length - 1e-9));
+        int merged = count - minShared + 1;
+        if (merged <= 0) {
+            return;
+        }
+        int[] cursors = new int[count];
+        while (true) {
+            int ordinal = Integer.MAX_VALUE;
+            for (int i = 0; i < merged; i++) {
+                if (cursors[i] < sizes[i] && lists[i][cursors[i]] < ordinal) {
+                    ordinal = lists[i][cursors[i]];
+                }
+            }
+            if (ordinal == Integer.MAX_VALUE) {
+                return;
+            }
+            int shared = 0;
+            for (int i = 0; i < merged; i++) {
+                if (cursors[i] < sizes[i] && lists[i][cursors[i]] == ordinal) {
+                    cursors[i]++;
+                    shared++;
+                }
+            }
+            if (removed.get(ordinal)) {
+                continue;
+            }
+            for (int i = merged; i < count && shared + count - i >= minShared; i++) {
+                cursors[i] = gallop(lists[i], cursors[i], sizes[i], ordinal);
+                if (cursors[i] < sizes[i] && lists[i][cursors[i]] == ordinal) {
+                    shared++;
+                }
+            }
+            double similarity = (double) shared / (query.length + ordinalGramCounts[ordinal] - shared);
+            if (similarity >= minSimilarity) {
+                matches.offer(ordinalIds[ordinal], similarity);
+            }
+        }
+    }
+
+    /**
+     * First position at or after {@code from} whose ordinal is not below {@code ordinal}.
+     */
+    private static int gallop(int[] list, int from, int size, int ordinal) {
+        int step = 1;
+        int high = from;
+        while (high < size && list[high] < ordinal) {
+            from = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int low = from;
+        high = Math.min(high, size);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list[middle] < ordinal) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Shrinks every posting list to its size. Called once a bulk build is complete; later puts
+     * grow the lists again.
+     */
+    void trim() {
+        for (int slot = 0; slot < gramKeys.length; slot++) {
+            if (gramKeys[slot] != NO_KEY && postings[slot].length > postingSizes[slot]) {
+                postingCapacity -= postings[slot].length - postingSizes[slot];
+                postings[slot] = Arrays.copyOf(postings[slot], postingSizes[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return live;
+    }
+
+    long sizeInBytes() {
+        return (long) gramKeys.length * (Long.BYTES + Integer.BYTES + 8)
+                + postingCapacity * Integer.BYTES
+                + (long) idKeys.length * (Long.BYTES + Integer.BYTES)
+                + (long) ordinalIds.length * (Long.BYTES + Integer.BYTES)
+                + removed.size() / 8;
+    }
+
+    /**
+     * Sorted distinct trigrams of the text. Each trigram packs three UTF-16 code units into the
+     * low 48 bits of a long.
+     */
+    static long[] trigrams(String text) {
+        if (text == null || text.isEmpty()) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() * 2 + 1];
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == text.length()) {
+                break;
+            }
+            long first = ' ';
+            long second = ' ';
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                long third = Character.toLowerCase(text.charAt(i++));
+                grams[count++] = first << 32 | second << 16 | third;
+                first = second;
+                second = third;
+            }
+            grams[count++] = first << 32 | second << 16 | ' ';
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int j = 0; j < count; j++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[j]) {
+                grams[distinct++] = grams[j];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private void append(long gram, int ordinal) {
+        int slot = gramSlot(gram);
+        if (gramKeys[slot] == NO_KEY) {
+            if ((gramCount + 1) * 4L > gramKeys.length * 3L) {
+                resizeGrams();
+                slot = gramSlot(gram);
+            }
+            gramKeys[slot] = gram;
+            postings[slot] = new int[INITIAL_POSTING_CAPACITY];
+            postingCapacity += INITIAL_POSTING_CAPACITY;
+            gramCount++;
+        }
+        int[] list = postings[slot];
+        int size = postingSizes[slot];
+        if (size == list.length) {
+            int capacity = Math.max(INITIAL_POSTING_CAPACITY, size + (size >> 1));
+            postingCapacity += capacity - size;
+            list = Arrays.copyOf(list, capacity);
+            postings[slot] = list;
+        }
+        list[size] = ordinal;
+        postingSizes[slot] = size + 1;
+    }
+
+    private void putOrdinal(long id, int ordinal) {
+        int slot = idSlot(id);
+        if (idKeys[slot] == NO_KEY) {
+            if ((idCount + 1) * 4L > idKeys.length * 3L) {
+                resizeIds();
+                slot = idSlot(id);
+            }
+            idKeys[slot] = id;
+            idCount++;
+        }
+        idOrdinals[slot] = ordinal;
+    }
+
+    private int gramSlot(long gram) {
+        int mask = gramKeys.length - 1;
+        int slot = mix(gram) & mask;
+        while (gramKeys[slot] != NO_KEY && gramKeys[slot] != gram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int idSlot(long id) {
+        int mask = idKeys.length - 1;
+        int slot = mix(id) & mask;
+        while (idKeys[slot] != NO_KEY && idKeys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resizeGrams() {
+        long[] oldKeys = gramKeys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+        gramKeys = filled(oldKeys.length * 2);
+        postings = new int[gramKeys.length][];
+        postingSizes = new int[gramKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                int slot = gramSlot(oldKeys[i]);
+                gramKeys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                postingSizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    private void resizeIds() {
+        long[] oldKeys = idKeys;
+        int[] oldOrdinals = idOrdinals;
+        idKeys = filled(oldKeys.length * 2);
+        idOrdinals = new int[idKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                int slot = idSlot(oldKeys[i]);
+                idKeys[slot] = oldKeys[i];
+                idOrdinals[slot] = oldOrdinals[i];
+            }
+        }
+    }
+
+    private static int tableSize(int expected) {
+        return Integer.highestOneBit(Math.max(16, expected * 4 / 3) - 1) << 1;
+    }
+
+    private static long[] filled(int size) {
+        long[] keys = new long[size];
+        Arrays.fill(keys, NO_KEY);
+        return keys;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+}
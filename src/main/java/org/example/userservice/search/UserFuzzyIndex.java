@@ -0,0 +1,207 @@
+package org.example.userservice.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.userservice.dto.UserMatch;
+import org.example.userservice.events.UserDeletedEvent;
+import org.example.userservice.events.UserSavedEvent;
+import org.example.userservice.repository.UserNameAndEmail;
+import org.example.userservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Typo-tolerant lookup of users by name and email over in-memory {@link TrigramIndex trigram
+ * indexes}, one per field. A user scores the higher of its two similarities to the query.
+ * <p>
+ * The indexes are built by streaming the {@code users} table on a fixed delay and kept current
+ * from the committed create, update and delete events of this instance. Changes committed while
+ * a rebuild streams the table are replayed onto the new indexes before they replace the old
+ * ones. Until the first build finishes no user matches. Changes made through another replica
+ * show up after the next rebuild, so matches are candidates to be read back, not users.
+ */
+@Component
+public class UserFuzzyIndex {
+    public static final int MAX_QUERY_LENGTH = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(UserFuzzyIndex.class);
+
+    private final UserRepository userRepository;
+    private final FuzzySearchProperties properties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Fields current;
+    /** Changes committed during a rebuild, by user id; a null value is a delete. */
+    private Map<Long, UserSavedEvent> pending;
+
+    private final Timer searchTimer;
+
+    public UserFuzzyIndex(UserRepository userRepository, FuzzySearchProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        Gauge.builder("user.fuzzy-index.users", this, UserFuzzyIndex::size)
+                .description("Users in the fuzzy search index")
+                .register(meterRegistry);
+        Gauge.builder("user.fuzzy-index.size", this, UserFuzzyIndex::sizeInBytes)
+                .description("Approximate memory used by the fuzzy search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.searchTimer = Timer.builder("user.fuzzy-index.search")
+                .description("Time to rank fuzzy search candidates")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Users whose name or email is at least {@code app.fuzzy-search.min-similarity} similar to
+     * the query, best first.
+     */
+    public List<UserMatch> search(String query, Integer limit) {
+        int maxResults = limit == null
+                ? properties.maxResults()
+                : Math.max(1, Math.min(limit, properties.maxResults()));
+        long[] grams = TrigramIndex.trigrams(query);
+        TopMatches matches = new TopMatches(maxResults);
+        Timer.Sample sample = Timer.start();
+        lock.readLock().lock();
+        try {
+            if (current != null && grams.length > 0) {
+                current.names().search(grams, properties.minSimilarity(), matches);
+                current.emails().search(grams, properties.minSimilarity(), matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+            sample.stop(searchTimer);
+        }
+        return matches.toList();
+    }
+
+    @TransactionalEventListener
+    public void onUserSaved(UserSavedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (current != null) {
+                current.put(event);
+            }
+            if (pending != null) {
+                pending.put(event.userId(), event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (current != null) {
+                current.remove(event.userId());
+            }
+            if (pending != null) {
+                pending.put(event.userId(), null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.fuzzy-search.rebuild-interval:6h}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            int expected = (int) Math.min(Integer.MAX_VALUE - 8, userRepository.count() + 1024);
+            Fields next = new Fields(new TrigramIndex(expected), new TrigramIndex(expected));
+            try (Stream<UserNameAndEmail> users = userRepository.streamAllNamesAndEmails()) {
+                Iterator<UserNameAndEmail> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    UserNameAndEmail user = iterator.next();
+                    next.names().put(user.id(), user.name());
+                    next.emails().put(user.id(), user.email());
+                }
+            }
+            next.trim();
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, UserSavedEvent> change : pending.entrySet()) {
+                    if (change.getValue() == null) {
+                        next.remove(change.getKey());
+                    } else {
+                        next.put(change.getValue());
+                    }
+                }
+                current = next;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Fuzzy search index rebuilt: {} users, {} bytes", next.names().size(), next.sizeInBytes());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return current == null ? 0 : current.names().size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return current == null ? 0 : current.sizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Fields(TrigramIndex names, TrigramIndex emails) {
+
+        void trim() {
+            names.trim();
+            emails.trim();
+        }
+
+        void put(UserSavedEvent user) {
+            names.put(user.userId(), user.name());
+            emails.put(user.userId(), user.email());
+        }
+
+        void remove(long id) {
+            names.remove(id);
+            emails.remove(id);
+        }
+
+        long sizeInBytes() {
+            return names.sizeInBytes() + emails.sizeInBytes();
+        }
+    }
+}
@@ -1,36 +1,90 @@
 package org.example.userservice.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.example.userservice.cache.UserCacheConfig;
+import org.example.userservice.datasource.PrimaryPin;
 import org.example.userservice.domain.User;
 import org.example.userservice.dto.CreateUserRequest;
 import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserBatchDeleteResponse;
+import org.example.userservice.dto.UserBatchItem;
+import org.example.userservice.dto.UserBatchResponse;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
 import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserChangedEvent;
+import org.example.userservice.events.UserDeletedEvent;
 import org.example.userservice.events.UserEvent;
+import org.example.userservice.events.UserSavedEvent;
 import org.example.userservice.exception.types.ConflictException;
 import org.example.userservice.exception.types.NotFoundException;
+import org.example.userservice.exception.types.PreconditionFailedException;
+import org.example.userservice.filter.EmailFilter;
 import org.example.userservice.mapper.UserMapper;
-import org.example.userservice.messaging.UserKafkaProducer;
+import org.example.userservice.messaging.UserEventOutbox;
+import org.example.userservice.repository.DeletedUser;
 import org.example.userservice.repository.UserRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Component
 @Service
+@Timed(value = "user.service", description = "Time spent in UserService methods", histogram = true)
 public class UserService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final UserMapper userMapper;
     private final UserRepository userRepository;
-    private final UserKafkaProducer userKafkaProducer;
+    private final UserEventOutbox userEventOutbox;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final EmailFilter emailFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final SingleFlight<Long, UserResponse> userReads = new SingleFlight<>();
 
-    public UserService(UserRepository userRepository, UserMapper userMapper, UserKafkaProducer userKafkaProducer) {
+    public UserService(UserRepository userRepository, UserMapper userMapper, UserEventOutbox userEventOutbox,
+                       EntityManager entityManager, Validator validator, EmailFilter emailFilter,
+                       ApplicationEventPublisher eventPublisher, CacheManager cacheManager) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
-        this.userKafkaProducer = userKafkaProducer;
+        this.userEventOutbox = userEventOutbox;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.emailFilter = emailFilter;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
     }
 
     @Transactional
@@ -38,61 +92,319 @@ public class UserService {
         String normalizedEmail = request.email().trim().toLowerCase();
         mailUnique(normalizedEmail);
         User user = userMapper.fromCreate(request);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+            // Ids come from a pooled sequence, so the insert and the creation timestamps wait for a flush.
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw emailInUse(e);
+        }
+        emailFilter.add(normalizedEmail);
 
-        UserEvent userEvent = new UserEvent();
-        userEvent.setEmail(normalizedEmail);
-        userEvent.setOperation(OperationType.CREATE);
-        userKafkaProducer.sendUserToKafka(userEvent);
+        UserResponse created = userMapper.toResponse(user);
+        userEventOutbox.enqueue(createEvent(user, normalizedEmail), created);
+        eventPublisher.publishEvent(new UserSavedEvent(user.getId(), user.getName(), user.getEmail()));
 
-        return userMapper.toResponse(user);
+        return created;
     }
 
+    /**
+     * Creates a batch of users with one uniqueness query, batched inserts and one outbox write.
+     * Invalid requests and taken emails, including duplicates inside the batch, are reported
+     * per item and do not stop the rest of the batch.
+     */
     @Transactional
+    public UserBatchResponse createUsers(List<CreateUserRequest> requests) {
+        UserBatchItem[] items = new UserBatchItem[requests.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateUserRequest request = requests.get(i);
+            Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                items[i] = UserBatchItem.invalid(i, describe(violations));
+                continue;
+            }
+            String normalizedEmail = request.email().trim().toLowerCase();
+            if (candidates.putIfAbsent(normalizedEmail, i) != null) {
+                items[i] = UserBatchItem.conflict(i);
+            }
+        }
+
+        // The email filter is not consulted: it can miss emails inserted on other instances, and
+        // one miss would fail the whole batch on the unique constraint instead of a single item.
+        Set<String> taken = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findExistingEmails(new ArrayList<>(candidates.keySet())));
+        List<User> users = new ArrayList<>(candidates.size());
+        List<Integer> indexes = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            int index = candidate.getValue();
+            if (taken.contains(candidate.getKey())) {
+                items[index] = UserBatchItem.conflict(index);
+                continue;
+            }
+            User user = userMapper.fromCreate(requests.get(index));
+            user.setEmail(candidate.getKey());
+            users.add(user);
+            indexes.add(index);
+        }
+
+        userRepository.saveAll(users);
+        userRepository.flush();
+
+        List<UserEvent> userEvents = new ArrayList<>(users.size());
+        List<UserResponse> states = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            emailFilter.add(user.getEmail());
+            UserResponse created = userMapper.toResponse(user);
+            items[indexes.get(i)] = UserBatchItem.created(indexes.get(i), created);
+            userEvents.add(createEvent(user, user.getEmail()));
+            states.add(created);
+            eventPublisher.publishEvent(new UserSavedEvent(user.getId(), user.getName(), user.getEmail()));
+        }
+        userEventOutbox.enqueueAll(userEvents, states);
+
+        return new UserBatchResponse(users.size(), Arrays.asList(items));
+    }
+
+    /**
+     * Concurrent cache misses for the same id share one query and its result or
+     * {@link NotFoundException}. There is deliberately no transaction around the wait: callers
+     * waiting for another one's query hold no connection, only the query itself runs in one,
+     * which {@link UserRepository#findResponseById} makes read-only so that it goes to a replica.
+     * <p>
+     * A request pinned to the primary by {@link PrimaryPin} bypasses both the cache and the
+     * shared query: either may hold a row read from a replica that has not seen its write yet.
+     */
+    @Cacheable(cacheNames = UserCacheConfig.USERS, key = "#id",
+            condition = "!T(org.example.userservice.datasource.PrimaryPin).isPinned()")
     public UserResponse readUser(Long id) {
-        User user = userRepository.findById(id).orElseThrow(() -> new NotFoundException("User not found"));
-        return userMapper.toResponse(user);
+        if (PrimaryPin.isPinned()) {
+            return loadUser(id);
+        }
+        return userReads.run(id, () -> loadUser(id));
+    }
+
+    private UserResponse loadUser(Long id) {
+        return userRepository.findResponseById(id).orElseThrow(() -> new NotFoundException("User not found"));
     }
 
+    /**
+     * Current version of a user, read without loading the entity. ETags are built from it.
+     */
+    @Transactional(readOnly = true)
+    public Long readVersion(Long id) {
+        return userRepository.findVersionById(id).orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    /**
+     * Applies a partial update with a single {@code UPDATE ... RETURNING} that writes only the
+     * given fields and bumps the version; the entity is never loaded. When
+     * {@code expectedVersions} is not null the row is only updated at one of those versions,
+     * so concurrent writers cannot overwrite each other unnoticed. The UPDATE event carries the
+     * new version and only the fields that were set.
+     */
+    @CacheEvict(cacheNames = UserCacheConfig.USERS, key = "#id")
     @Transactional
-    public UserResponse updateUser(Long id, @Valid UpdateUserRequest request) {
-        User user = userRepository.findById(id).orElseThrow(() -> new NotFoundException("User not found"));
-        if (request.email() != null) {
-            String normalizedEmail = request.email().trim().toLowerCase();
+    public UserResponse updateUser(Long id, @Valid UpdateUserRequest request, Collection<Long> expectedVersions) {
+        String normalizedEmail = request.email() == null ? null : request.email().trim().toLowerCase();
+        if (request.name() == null && normalizedEmail == null && request.age() == null) {
+            UserResponse current = userRepository.findResponseById(id)
+                    .orElseThrow(() -> new NotFoundException("User not found"));
+            if (expectedVersions != null && !expectedVersions.contains(current.version())) {
+                throw new PreconditionFailedException("User was modified");
+            }
+            return current;
+        }
+        if (normalizedEmail != null) {
             mailUnique(normalizedEmail);
-            user.setEmail(normalizedEmail);
         }
-        userMapper.applyUpdate(request, user);
-        return userMapper.toResponse(user);
+        Optional<UserResponse> returned;
+        try {
+            returned = userRepository.updateReturning(id, request.name(), normalizedEmail, request.age(),
+                    new Date(), expectedVersions);
+        } catch (DataIntegrityViolationException e) {
+            throw emailInUse(e);
+        }
+        UserResponse updated = returned
+                .orElseThrow(() -> expectedVersions != null && userRepository.existsById(id)
+                        ? new PreconditionFailedException("User was modified")
+                        : new NotFoundException("User not found"));
+        if (normalizedEmail != null) {
+            emailFilter.add(normalizedEmail);
+        }
+
+        UserEvent userEvent = new UserEvent();
+        userEvent.setUserId(id);
+        userEvent.setOperation(OperationType.UPDATE);
+        userEvent.setVersion(updated.version());
+        userEvent.setName(request.name());
+        userEvent.setEmail(normalizedEmail);
+        userEvent.setAge(request.age());
+        userEventOutbox.enqueue(userEvent, updated);
+
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(new UserSavedEvent(id, updated.name(), updated.email()));
+        return updated;
     }
 
+    @CacheEvict(cacheNames = UserCacheConfig.USERS, key = "#id")
     @Transactional
     public void removeUserById(Long id) {
-        User user = userRepository.findById(id).orElseThrow(() -> new NotFoundException("User not found"));
+        List<DeletedUser> deleted = userRepository.deleteAllByIdReturning(List.of(id));
+        if (deleted.isEmpty()) {
+            throw new NotFoundException("User not found");
+        }
+        userEventOutbox.enqueue(deleteEvent(deleted.getFirst()));
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(new UserDeletedEvent(id));
+    }
+
+    /**
+     * Deletes a batch of users with one statement that returns their emails and versions, and writes
+     * their events to the outbox in one batch. Ids that match no user are reported back.
+     */
+    @Transactional
+    public UserBatchDeleteResponse removeUsersById(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        List<DeletedUser> deleted = userRepository.deleteAllByIdReturning(requested);
+
+        Cache cache = cacheManager.getCache(UserCacheConfig.USERS);
+        Set<Long> deletedIds = new HashSet<>();
+        List<UserEvent> userEvents = new ArrayList<>(deleted.size());
+        for (DeletedUser user : deleted) {
+            deletedIds.add(user.id());
+            userEvents.add(deleteEvent(user));
+            if (cache != null) {
+                cache.evict(user.id());
+            }
+            eventPublisher.publishEvent(new UserChangedEvent(user.id()));
+            eventPublisher.publishEvent(new UserDeletedEvent(user.id()));
+        }
+        userEventOutbox.enqueueAll(userEvents);
+
+        List<Long> notFound = new ArrayList<>(requested.size() - deleted.size());
+        for (Long id : requested) {
+            if (!deletedIds.contains(id)) {
+                notFound.add(id);
+            }
+        }
+        return new UserBatchDeleteResponse(deleted.size(), notFound);
+    }
+
+    private static UserEvent createEvent(User user, String normalizedEmail) {
+        UserEvent userEvent = new UserEvent();
+        userEvent.setUserId(user.getId());
+        userEvent.setEmail(normalizedEmail);
+        userEvent.setName(user.getName());
+        userEvent.setAge(user.getAge());
+        userEvent.setVersion(user.getVersion());
+        userEvent.setOperation(OperationType.CREATE);
+        return userEvent;
+    }
 
+    private static UserEvent deleteEvent(DeletedUser user) {
         UserEvent userEvent = new UserEvent();
-        userEvent.setEmail(user.getEmail());
+        userEvent.setUserId(user.id());
+        userEvent.setEmail(user.email());
+        userEvent.setVersion(user.version());
         userEvent.setOperation(OperationType.DELETE);
-        userKafkaProducer.sendUserToKafka(userEvent);
+        return userEvent;
+    }
 
-        userRepository.deleteById(id);
+    /**
+     * Pages are projected straight into {@link UserResponse}, so no managed entities, snapshots
+     * or flushes are involved; a read-only transaction also switches the session to manual flush.
+     */
+    @Transactional(readOnly = true)
+    public UserPage getUsers(Long after, Long before, Integer limit) {
+        int pageSize = pageSize(limit);
+        if (after == null && before != null) {
+            List<UserResponse> users = userRepository.findResponsesBefore(before, Limit.of(pageSize + 1));
+            boolean hasPrevious = users.size() > pageSize;
+            List<UserResponse> page = new ArrayList<>(pageSize);
+            for (int i = Math.min(users.size(), pageSize) - 1; i >= 0; i--) {
+                page.add(users.get(i));
+            }
+            Long nextCursor = page.isEmpty() ? null : page.getLast().id();
+            Long prevCursor = hasPrevious ? page.getFirst().id() : null;
+            return new UserPage(page, pageSize, nextCursor, prevCursor);
+        }
 
+        List<UserResponse> users = after == null
+                ? userRepository.findResponses(Limit.of(pageSize + 1))
+                : userRepository.findResponsesAfter(after, Limit.of(pageSize + 1));
+        boolean hasNext = users.size() > pageSize;
+        List<UserResponse> page = hasNext ? users.subList(0, pageSize) : users;
+        Long nextCursor = hasNext ? page.getLast().id() : null;
+        Long prevCursor = after != null && !page.isEmpty() ? page.getFirst().id() : null;
+        return new UserPage(page, pageSize, nextCursor, prevCursor);
     }
 
-    @Transactional
-    public List<UserResponse> getUsers() {
-        List<User> users = userRepository.findAll();
-        List<UserResponse> userResponseList = new ArrayList<>();
-        for (User user : users) {
-            userResponseList.add(userMapper.toResponse(user));
+    /**
+     * Users matching the filter, one keyset page at a time. The filter is compiled into a
+     * single query over the indexed columns.
+     */
+    @Transactional(readOnly = true)
+    public UserPage searchUsers(UserSearchFilter filter, Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<UserResponse> users = userRepository.search(filter, after, pageSize + 1);
+        boolean hasNext = users.size() > pageSize;
+        List<UserResponse> page = hasNext ? users.subList(0, pageSize) : users;
+        return new UserPage(page, pageSize, hasNext ? page.getLast().id() : null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportUsers(Consumer<UserResponse> consumer) {
+        long exported = 0;
+        try (Stream<User> users = userRepository.streamAllOrderById()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                consumer.accept(userMapper.toResponse(user));
+                entityManager.detach(user);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    private static String describe(Set<ConstraintViolation<CreateUserRequest>> violations) {
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<CreateUserRequest> violation : violations) {
+            messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        messages.sort(null);
+        return String.join("; ", messages);
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
         }
-        return userResponseList;
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 
     public void mailUnique(String email) {
         String normalizedEmail = email.trim().toLowerCase();
+        if (!emailFilter.mightExist(normalizedEmail)) {
+            return;
+        }
         if (userRepository.existsUserByEmail(normalizedEmail)) {
             throw new ConflictException("Email already in use");
         }
+        emailFilter.recordFalsePositive();
+    }
+
+    /**
+     * The unique constraint on {@code users.email} is the only one a valid request can violate. It
+     * catches emails that {@link #mailUnique} let through, such as ones inserted on another
+     * instance that the email filter has not seen yet.
+     */
+    private static ConflictException emailInUse(DataIntegrityViolationException cause) {
+        ConflictException exception = new ConflictException("Email already in use");
+        exception.initCause(cause);
+        return exception;
     }
 }
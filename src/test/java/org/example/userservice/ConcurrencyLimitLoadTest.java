@@ -0,0 +1,115 @@
+package org.example.userservice;
+
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Goodput of GET /users with and without the adaptive concurrency limit as the number of clients
+ * grows past what a small connection pool can serve. Goodput counts successful responses within
+ * {@link #SLO}. With the limit it must stay within {@link #MIN_GOODPUT_RATIO} of the goodput at
+ * the lowest client count while the excess is shed with 503; without it every request queues for a
+ * connection and goodput collapses, which is only measured for comparison.
+ * Run with {@code mvn test -Dbenchmark=true -Dtest=ConcurrencyLimitLoadTest}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConcurrencyLimitLoadTest {
+
+    private static final int[] CLIENTS = {20, 200, 1000};
+    private static final Duration RUN = Duration.ofSeconds(20);
+    private static final Duration SLO = Duration.ofMillis(250);
+    private static final double MIN_GOODPUT_RATIO = 0.7;
+
+    @Test
+    void goodputUnderOverloadWithAndWithoutLimit() throws Exception {
+        Map<Boolean, List<Result>> results = new HashMap<>();
+        for (boolean limited : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                    .profiles("test")
+                    .properties("server.port=0", "server.tomcat.threads.max=1000", "server.tomcat.accept-count=1000",
+                            "spring.datasource.hikari.maximum-pool-size=4", "eureka.client.enabled=false",
+                            "app.concurrency-limit.enabled=" + limited)
+                    .run()) {
+                UserService userService = context.getBean(UserService.class);
+                for (int i = 0; i < 1000; i++) {
+                    userService.createUser(new CreateUserRequest("name" + i, i + "name@mail.ru", i));
+                }
+                URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                        + "/users?limit=" + UserService.MAX_PAGE_SIZE);
+                List<Result> runs = new ArrayList<>();
+                for (int clients : CLIENTS) {
+                    runs.add(run(uri, clients));
+                }
+                results.put(limited, runs);
+            }
+        }
+
+        List<Result> limited = results.get(true);
+        Result uncontended = limited.getFirst();
+        Result overloaded = limited.getLast();
+        assertThat(uncontended.good()).isPositive();
+        assertThat((double) overloaded.good() / uncontended.good())
+                .as("goodput with the limit at %d clients relative to %d clients (without the limit: %s)",
+                        CLIENTS[CLIENTS.length - 1], CLIENTS[0], results.get(false))
+                .isGreaterThanOrEqualTo(MIN_GOODPUT_RATIO);
+        assertThat(overloaded.shed()).as("requests shed with 503").isPositive();
+    }
+
+    private static Result run(URI uri, int clients) throws Exception {
+        AtomicLong good = new AtomicLong();
+        AtomicLong slow = new AtomicLong();
+        AtomicLong shed = new AtomicLong();
+        long end = System.nanoTime() + RUN.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(executor).build()) {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                runs.add(executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        int status = http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                                .statusCode();
+                        long latency = System.nanoTime() - start;
+                        if (status == 503) {
+                            shed.incrementAndGet();
+                            // Clients back off as Retry-After asks, scaled down to keep the run short.
+                            Thread.sleep(100);
+                        } else if (status == 200 && latency <= SLO.toNanos()) {
+                            good.incrementAndGet();
+                        } else {
+                            slow.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        }
+        return new Result(clients, good.get(), slow.get(), shed.get());
+    }
+
+    /** Request counts of one run of {@link #RUN}. */
+    private record Result(int clients, long good, long slow, long shed) {
+    }
+}
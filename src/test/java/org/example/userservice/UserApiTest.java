@@ -15,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -61,6 +62,35 @@ class UserApiTest {
                 .andExpect(jsonPath("$.detail").value("Email already in use"));
     }
 
+    @Test
+    void createRetriedWithIdempotencyKeyReturnsFirstUser() throws Exception {
+        var request = new CreateUserRequest("name", "name@mail.ru", 123);
+
+        MvcResult first = mvc.perform(post("/users/create")
+                        .header("Idempotency-Key", "create-name")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is(201))
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+        long id = objectMapper.readTree(first.getResponse().getContentAsString()).get("id").asLong();
+
+        mvc.perform(post("/users/create")
+                        .header("Idempotency-Key", "create-name")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is(201))
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(id));
+
+        var otherRequest = new CreateUserRequest("other", "other@mail.ru", 321);
+        mvc.perform(post("/users/create")
+                        .header("Idempotency-Key", "create-name")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherRequest)))
+                .andExpect(status().is(422));
+    }
+
     @Test
     void updateTest() throws Exception {
         var createRequest = new CreateUserRequest("name", "name@mail.ru", 123);
@@ -0,0 +1,91 @@
+package org.example.userservice;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * p99 latency of GET /users under high concurrency with platform and with virtual request threads:
+ * with virtual threads it must be no worse, and no virtual thread may get pinned to its carrier.
+ * Run with {@code mvn test -Dbenchmark=true -Dtest=VirtualThreadsBenchmarkTest}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadsBenchmarkTest {
+
+    private static final int CLIENTS = 500;
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @Test
+    void p99LatencyPlatformVersusVirtualThreads() throws Exception {
+        long platform = p99Millis("test");
+        AtomicLong pinned = new AtomicLong();
+        long virtual;
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1));
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+            recording.startAsync();
+            virtual = p99Millis("test", "virtual-threads");
+            // Waits until the events recorded so far have been handed to onEvent.
+            recording.stop();
+        }
+
+        assertThat(pinned).as("pinned virtual threads").hasValue(0);
+        assertThat(virtual).as("p99 with virtual threads, ms").isLessThanOrEqualTo(platform);
+    }
+
+    private long p99Millis(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .profiles(profiles)
+                .properties("server.port=0", "server.tomcat.threads.max=50",
+                        "spring.datasource.hikari.maximum-pool-size=20", "eureka.client.enabled=false")
+                .run()) {
+            UserService userService = context.getBean(UserService.class);
+            for (int i = 0; i < 1000; i++) {
+                userService.createUser(new CreateUserRequest("name" + i, i + "name@mail.ru", i));
+            }
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/users?limit=" + UserService.MAX_PAGE_SIZE);
+
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient http = HttpClient.newBuilder().executor(clients).build()) {
+                List<Future<?>> runs = new ArrayList<>();
+                for (int c = 0; c < CLIENTS; c++) {
+                    runs.add(clients.submit(() -> {
+                        for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                            long start = System.nanoTime();
+                            http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+                            latencies.add(System.nanoTime() - start);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> run : runs) {
+                    run.get();
+                }
+            }
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return Duration.ofNanos(sorted.get((int) (sorted.size() * 0.99))).toMillis();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.userservice.cache;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.example.userservice.events.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheInvalidatorTest {
+
+    @Mock
+    KafkaTemplate<String, UserCacheInvalidation> template;
+
+    @Mock
+    CacheManager cacheManager;
+
+    @Mock
+    Cache cache;
+
+    @Mock
+    ConsumerSeekCallback callback;
+
+    CacheInvalidationProperties properties = new CacheInvalidationProperties("invalidation", "node-a", Duration.ofMinutes(5));
+    UserCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        when(cacheManager.getCache(UserCacheConfig.USERS)).thenReturn(cache);
+        invalidator = new UserCacheInvalidator(template, properties, cacheManager);
+    }
+
+    @Test
+    void committedChangeIsAnnouncedWithNodeId() {
+        when(template.send("invalidation", "7", new UserCacheInvalidation("node-a", 7L)))
+                .thenReturn(new CompletableFuture<>());
+
+        invalidator.onUserChanged(new UserChangedEvent(7L));
+
+        verify(template).send("invalidation", "7", new UserCacheInvalidation("node-a", 7L));
+    }
+
+    @Test
+    void peerInvalidationEvictsLocalEntry() {
+        invalidator.onInvalidation(new ConsumerRecord<>("invalidation", 0, 0, "7", new UserCacheInvalidation("node-b", 7L)));
+
+        verify(cache).evict(7L);
+    }
+
+    @Test
+    void ownInvalidationIsIgnored() {
+        invalidator.onInvalidation(new ConsumerRecord<>("invalidation", 0, 0, "7", new UserCacheInvalidation("node-a", 7L)));
+
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void firstAssignmentStartsAtEnd() {
+        TopicPartition partition = new TopicPartition("invalidation", 0);
+
+        invalidator.onPartitionsAssigned(Map.of(partition, 0L), callback);
+
+        verify(callback).seekToEnd(Set.of(partition));
+    }
+
+    @Test
+    void reassignmentCatchesUpFromRevocation() {
+        TopicPartition partition = new TopicPartition("invalidation", 0);
+
+        invalidator.onPartitionsRevoked(List.of(partition));
+        invalidator.onPartitionsAssigned(Map.of(partition, 0L), callback);
+
+        verify(callback).seekToTimestamp(eq(Set.of(partition)), anyLong());
+        verify(cache, never()).clear();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.userservice.cache;
+
+import org.example.userservice.datasource.PrimaryPin;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.exception.types.NotFoundException;
+import org.example.userservice.repository.UserRepository;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCacheTest {
+
+    @Autowired
+    UserService userService;
+
+    @MockitoSpyBean
+    UserRepository userRepository;
+
+    @Test
+    void readIsCachedUntilUpdate() {
+        UserResponse created = userService.createUser(new CreateUserRequest("name", "cached@mail.ru", 20));
+
+        userService.readUser(created.id());
+        userService.readUser(created.id());
+        verify(userRepository, times(1)).findResponseById(created.id());
+
+        userService.updateUser(created.id(), new UpdateUserRequest("newName", null, null), null);
+
+        assertThat(userService.readUser(created.id()).name()).isEqualTo("newName");
+        verify(userRepository, times(2)).findResponseById(created.id());
+
+        userService.removeUserById(created.id());
+        assertThrows(NotFoundException.class, () -> userService.readUser(created.id()));
+    }
+
+    @Test
+    void readPinnedToPrimaryBypassesCache() {
+        UserResponse created = userService.createUser(new CreateUserRequest("name", "pinned@mail.ru", 20));
+        userService.readUser(created.id());
+
+        PrimaryPin.pin();
+        try {
+            userService.readUser(created.id());
+            userService.readUser(created.id());
+        } finally {
+            PrimaryPin.clear();
+        }
+        verify(userRepository, times(3)).findResponseById(created.id());
+
+        userService.readUser(created.id());
+        verify(userRepository, times(3)).findResponseById(created.id());
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.userservice.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.exception.types.NotFoundException;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(InternalUserController.class)
+@Import(SimpleMeterRegistry.class)
+class InternalUserControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @MockitoBean
+    UserService userService;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void getByIdReturnsPlainJson() throws Exception {
+        var response = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L);
+        when(userService.readUser(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/internal/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$._links").doesNotExist());
+    }
+
+    @Test
+    void getByIdReturns404() throws Exception {
+        when(userService.readUser(1L)).thenThrow(new NotFoundException("User not found"));
+        double before = notFoundErrors();
+
+        mockMvc.perform(get("/internal/users/1"))
+                .andExpect(status().isNotFound());
+        assertThat(notFoundErrors()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void listReturnsPageWithCursors() throws Exception {
+        var user = new UserResponse(6L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        when(userService.getUsers(5L, null, 1)).thenReturn(new UserPage(List.of(user), 1, 6L, 6L));
+
+        mockMvc.perform(get("/internal/users?after=5&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].email").value("name@mail.ru"))
+                .andExpect(jsonPath("$.nextCursor").value(6))
+                .andExpect(jsonPath("$._embedded").doesNotExist());
+    }
+
+    private double notFoundErrors() {
+        return meterRegistry.get("user.errors").tag("type", "not-found").counter().count();
+    }
+}
@@ -1,10 +1,22 @@
 package org.example.userservice.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.userservice.dto.CreateUserRequest;
 import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserBatchDeleteResponse;
+import org.example.userservice.dto.UserBatchItem;
+import org.example.userservice.dto.UserBatchResponse;
+import org.example.userservice.dto.UserMatch;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
+import org.example.userservice.exception.types.PreconditionFailedException;
+import org.example.userservice.exception.types.ServiceUnavailableException;
+import org.example.userservice.exception.types.UnprocessableEntityException;
 import org.example.userservice.hateoas.UserModelAssembler;
+import org.example.userservice.idempotency.IdempotencyStore;
+import org.example.userservice.search.UserFuzzyIndex;
 import org.example.userservice.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -16,18 +28,24 @@ import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
-@Import({UserModelAssembler.class})
+@Import({UserModelAssembler.class, SimpleMeterRegistry.class})
 class UserControllerTest {
 
     @Autowired
@@ -36,11 +54,15 @@ class UserControllerTest {
     ObjectMapper objectMapper;
     @MockitoBean
     UserService userService;
+    @MockitoBean
+    UserFuzzyIndex fuzzyIndex;
+    @MockitoBean
+    IdempotencyStore idempotencyStore;
 
     @Test
     void createReturns201AndLocationAndBody() throws Exception {
         UserResponse response = new UserResponse(
-                1L, "name", "name@mail.ru", 123, new Date(), new Date()
+                1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
         );
         when(userService.createUser(ArgumentMatchers.any())).thenReturn(response);
 
@@ -56,6 +78,50 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("name@mail.ru"));
     }
 
+    @Test
+    void createWithIdempotencyKeyMarksReplayedResponse() throws Exception {
+        UserResponse response = new UserResponse(
+                1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
+        );
+        var request = new CreateUserRequest("name", "name@mail.ru", 123);
+        when(idempotencyStore.createUser("key-1", request)).thenReturn(new IdempotencyStore.Result(response, true));
+
+        mockMvc.perform(post("/users/create")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", containsString("/users/read/1")))
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(1));
+        verify(userService, never()).createUser(ArgumentMatchers.any());
+    }
+
+    @Test
+    void createWithReusedIdempotencyKeyReturns422() throws Exception {
+        var request = new CreateUserRequest("name", "name@mail.ru", 123);
+        when(idempotencyStore.createUser("key-1", request))
+                .thenThrow(new UnprocessableEntityException("Idempotency-Key was already used for a different request"));
+
+        mockMvc.perform(post("/users/create")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is(422))
+                .andExpect(jsonPath("$.type", containsString("users/error/unprocessable-entity")));
+    }
+
+    @Test
+    void overloadReturns503WithRetryAfter() throws Exception {
+        when(userService.getUsers(null, null, null))
+                .thenThrow(new ServiceUnavailableException("Too many concurrent requests, retry later", Duration.ofMillis(1500)));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.type", containsString("users/error/service-unavailable")));
+    }
+
     @Test
     void createDataIntegrityException() throws Exception {
         when(userService.createUser(ArgumentMatchers.any())).thenThrow(new DataIntegrityViolationException("DataIntegrityViolationException"));
@@ -79,9 +145,35 @@ class UserControllerTest {
                 .andExpect(status().is(400));
     }
 
+    @Test
+    void batchCreateReturnsItemResults() throws Exception {
+        var created = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        var requests = List.of(new CreateUserRequest("name", "name@mail.ru", 12),
+                new CreateUserRequest("copy", "name@mail.ru", 13));
+        when(userService.createUsers(requests)).thenReturn(new UserBatchResponse(1,
+                List.of(UserBatchItem.created(0, created), UserBatchItem.conflict(1))));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].user.email").value("name@mail.ru"))
+                .andExpect(jsonPath("$.items[1].status").value("CONFLICT"));
+    }
+
+    @Test
+    void batchCreateRejectsEmptyBatch() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().is(400));
+    }
+
     @Test
     void getByIdReturns200() throws Exception {
-        var response = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date());
+        var response = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L);
         when(userService.readUser(1L)).thenReturn(response);
 
         mockMvc.perform(get("/users/read/1"))
@@ -92,9 +184,9 @@ class UserControllerTest {
 
     @Test
     void listReturns200AndArray() throws Exception {
-        var user1 = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date());
-        var user2 = new UserResponse(2L, "name2", "name2@mail.ru", 123, new Date(), new Date());
-        when(userService.getUsers()).thenReturn(List.of(user1, user2));
+        var user1 = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        var user2 = new UserResponse(2L, "name2", "name2@mail.ru", 123, new Date(), new Date(), 0L);
+        when(userService.getUsers(null, null, null)).thenReturn(new UserPage(List.of(user1, user2), 20, null, null));
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
@@ -102,11 +194,49 @@ class UserControllerTest {
                 .andExpect(jsonPath("$._embedded.userResponseList[0].email").value("name@mail.ru"));
     }
 
+    @Test
+    void listPassesCursorAndLimit() throws Exception {
+        var user = new UserResponse(6L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        when(userService.getUsers(5L, null, 1)).thenReturn(new UserPage(List.of(user), 1, 6L, 6L));
+
+        mockMvc.perform(get("/users?after=5&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseList", hasSize(1)))
+                .andExpect(jsonPath("$._links.next.href", endsWith("/users?after=6&limit=1")))
+                .andExpect(jsonPath("$._links.prev.href", endsWith("/users?before=6&limit=1")));
+    }
+
+    @Test
+    void exportStreamsNewlineDelimitedJson() throws Exception {
+        var user1 = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        var user2 = new UserResponse(2L, "name2", "name2@mail.ru", 123, new Date(), new Date(), 0L);
+        when(userService.exportUsers(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Consumer<UserResponse> consumer = invocation.getArgument(0);
+            consumer.accept(user1);
+            consumer.accept(user2);
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], UserResponse.class).email()).isEqualTo("name@mail.ru");
+        assertThat(objectMapper.readValue(lines[1], UserResponse.class).email()).isEqualTo("name2@mail.ru");
+    }
+
     @Test
     void updateReturns200() throws Exception {
         var request = new UpdateUserRequest("name", "newmail@mail.ru", 12);
-        var response = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date());
-        when(userService.updateUser(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(response);
+        var response = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 0L);
+        when(userService.updateUser(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(response);
 
         mockMvc.perform(put("/users/update/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -115,10 +245,142 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.name").value("name"));
     }
 
+    @Test
+    void getByIdReturnsETag() throws Exception {
+        var response = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date(), 1L);
+        when(userService.readUser(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/users/read/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        verify(userService, never()).readVersion(ArgumentMatchers.any());
+    }
+
+    @Test
+    void getByIdNotModifiedSkipsRead() throws Exception {
+        when(userService.readVersion(1L)).thenReturn(1L);
+
+        mockMvc.perform(get("/users/read/1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(userService, never()).readUser(ArgumentMatchers.any());
+    }
+
+    @Test
+    void getByIdWithStaleETagReturnsBody() throws Exception {
+        var response = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date(), 2L);
+        when(userService.readVersion(1L)).thenReturn(2L);
+        when(userService.readUser(1L)).thenReturn(response);
+
+        mockMvc.perform(get("/users/read/1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void listNotModifiedWhenPageUnchanged() throws Exception {
+        var user = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 1L);
+        when(userService.getUsers(null, null, null)).thenReturn(new UserPage(List.of(user), 20, null, null));
+
+        String etag = mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updatePassesIfMatchVersions() throws Exception {
+        var request = new UpdateUserRequest("name", null, null);
+        var response = new UserResponse(1L, "name", "name@mail.ru", 12, new Date(), new Date(), 2L);
+        when(userService.updateUser(1L, request, List.of(1L))).thenReturn(response);
+
+        mockMvc.perform(put("/users/update/1")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+    }
+
+    @Test
+    void updateWithStaleIfMatchReturns412() throws Exception {
+        var request = new UpdateUserRequest("name", null, null);
+        when(userService.updateUser(1L, request, List.of(1L)))
+                .thenThrow(new PreconditionFailedException("User was modified"));
+
+        mockMvc.perform(put("/users/update/1")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.type", containsString("users/error/precondition-failed")));
+    }
+
     @Test
     void deleteReturns204() throws Exception {
         mockMvc.perform(delete("/users/delete/1"))
                 .andExpect(status().is(204));
         verify(userService).removeUserById(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void batchDeleteReturnsMissingIds() throws Exception {
+        when(userService.removeUsersById(List.of(1L, 2L))).thenReturn(new UserBatchDeleteResponse(1, List.of(2L)));
+
+        mockMvc.perform(post("/users/batch/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.notFound[0]").value(2));
+    }
+
+    @Test
+    void batchDeleteRejectsEmptyBatch() throws Exception {
+        mockMvc.perform(post("/users/batch/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    void searchBindsFiltersAndKeepsThemInNextLink() throws Exception {
+        var user = new UserResponse(6L, "john", "john@mail.ru", 20, new Date(), new Date(), 0L);
+        var filter = new UserSearchFilter("jo", 18, 25, Instant.parse("2025-11-01T00:00:00Z"), null, null, null, "mail.ru");
+        when(userService.searchUsers(filter, null, 1)).thenReturn(new UserPage(List.of(user), 1, 6L, null));
+
+        mockMvc.perform(get("/users/search?namePrefix=jo&minAge=18&maxAge=25&createdFrom=2025-11-01T00:00:00Z&emailDomain=mail.ru&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseList[0].id").value(6))
+                .andExpect(jsonPath("$._links.next.href", containsString("namePrefix=jo")))
+                .andExpect(jsonPath("$._links.next.href", containsString("after=6")))
+                .andExpect(jsonPath("$._links.prev").doesNotExist());
+    }
+
+    @Test
+    void searchRejectsEmptyNamePrefix() throws Exception {
+        mockMvc.perform(get("/users/search?namePrefix="))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    void fuzzySearchReturnsRankedIds() throws Exception {
+        when(fuzzyIndex.search("jhon smit", 5)).thenReturn(List.of(new UserMatch(7L, 0.5), new UserMatch(3L, 0.31)));
+
+        mockMvc.perform(get("/users/fuzzy").param("q", "jhon smit").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[1].id").value(3))
+                .andExpect(jsonPath("$[1].score").value(0.31));
+    }
+
+    @Test
+    void fuzzySearchRejectsEmptyQuery() throws Exception {
+        mockMvc.perform(get("/users/fuzzy").param("q", ""))
+                .andExpect(status().is(400));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.userservice.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    ReadYourWritesFilter filter = new ReadYourWritesFilter(new ReplicaProperties(List.of(), Duration.ofSeconds(5)));
+
+    @Test
+    void writeSetsCookieAndPinsRequest() throws Exception {
+        AtomicBoolean pinned = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/users/create"), response,
+                new MockFilterChain(new HttpServlet() {
+                }, (request, servletResponse, chain) -> pinned.set(PrimaryPin.isPinned())));
+
+        assertThat(pinned).isTrue();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNotNull();
+        assertThat(PrimaryPin.isPinned()).isFalse();
+    }
+
+    @Test
+    void readWithLiveCookieIsPinned() throws Exception {
+        assertThat(pinnedDuringRead(System.currentTimeMillis() + 5000)).isTrue();
+    }
+
+    @Test
+    void readWithExpiredCookieUsesReplicas() throws Exception {
+        assertThat(pinnedDuringRead(System.currentTimeMillis() - 1)).isFalse();
+    }
+
+    private boolean pinnedDuringRead(long pinnedUntil) throws Exception {
+        AtomicBoolean pinned = new AtomicBoolean();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/read/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(pinnedUntil)));
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                }, (servletRequest, response, chain) -> pinned.set(PrimaryPin.isPinned())));
+        return pinned.get();
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.userservice.datasource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.idempotency.IdempotencyProperties;
+import org.example.userservice.idempotency.IdempotencyStore;
+import org.example.userservice.repository.IdempotencyKeyRepository;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica is the primary's own database here, so reads succeed wherever they go; which pool
+ * handed out the connection shows where they went.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicated;DB_CLOSE_DELAY=-1",
+        "app.replicas.enabled=true",
+        "app.replicas.sources[0].url=jdbc:h2:mem:replicated;DB_CLOSE_DELAY=-1",
+        "app.replicas.sources[0].username=sa",
+        "app.replicas.sources[0].password="
+})
+@ActiveProfiles("test")
+class ReplicaReadTest {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
+    @Autowired
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    IdempotencyProperties idempotencyProperties;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void readUserGoesToReplica() {
+        UserResponse created = userService.createUser(new CreateUserRequest("name", "replica@mail.ru", 20));
+        long replicaAcquired = acquired("replica-0");
+
+        assertThat(userService.readUser(created.id()).email()).isEqualTo("replica@mail.ru");
+
+        assertThat(acquired("replica-0")).isGreaterThan(replicaAcquired);
+    }
+
+    @Test
+    void idempotencyKeyIsLookedUpOnPrimary() {
+        CreateUserRequest request = new CreateUserRequest("name", "retried@mail.ru", 20);
+        UserResponse created = idempotencyStore.createUser("retried", request).user();
+        // Another node: the key is not in its memory, only in the table.
+        IdempotencyStore otherNode = new IdempotencyStore(userService, idempotencyKeyRepository, objectMapper,
+                transactionManager, idempotencyProperties, new SimpleMeterRegistry());
+        long replicaAcquired = acquired("replica-0");
+        long primaryAcquired = acquired("primary");
+
+        IdempotencyStore.Result result = otherNode.createUser("retried", request);
+
+        assertThat(result.replayed()).isTrue();
+        assertThat(result.user().id()).isEqualTo(created.id());
+        assertThat(acquired("replica-0")).isEqualTo(replicaAcquired);
+        assertThat(acquired("primary")).isGreaterThan(primaryAcquired);
+    }
+
+    private long acquired(String pool) {
+        Timer timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.userservice.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailBloomFilterTest {
+
+    @Test
+    void containsEveryPutValue() {
+        EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(i + "name@mail.ru");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(i + "name@mail.ru")).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(i + "name@mail.ru");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(i + "free@mail.ru")) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.falsePositiveRate()).isBetween(0.001, 0.02);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        EmailBloomFilter filter = new EmailBloomFilter(1_000, 0.01);
+
+        assertThat(filter.mightContain("name@mail.ru")).isFalse();
+        assertThat(filter.falsePositiveRate()).isZero();
+        assertThat(filter.sizeInBytes()).isPositive();
+    }
+}
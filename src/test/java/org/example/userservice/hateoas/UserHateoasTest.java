@@ -1,10 +1,14 @@
 package org.example.userservice.hateoas;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.userservice.controller.UserController;
 import org.example.userservice.dto.CreateUserRequest;
 import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
+import org.example.userservice.idempotency.IdempotencyStore;
+import org.example.userservice.search.UserFuzzyIndex;
 import org.example.userservice.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -25,7 +29,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserController.class)
-@Import(UserModelAssembler.class)
+@Import({UserModelAssembler.class, SimpleMeterRegistry.class})
 class UserHateoasTest {
 
     @Autowired
@@ -37,11 +41,16 @@ class UserHateoasTest {
     @MockitoBean
     public UserService userService;
 
+    @MockitoBean
+    UserFuzzyIndex fuzzyIndex;
+    @MockitoBean
+    IdempotencyStore idempotencyStore;
+
 
     @Test
     void getUserByIdHateoas() throws Exception {
         UserResponse response = new UserResponse(
-                1L, "name", "name@mail.ru", 123, new Date(), new Date()
+                1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
         );
         when(userService.readUser(1L)).thenReturn(response);
 
@@ -61,12 +70,12 @@ class UserHateoasTest {
     @Test
     void getAllUsersHateoas() throws Exception {
         UserResponse response1 = new UserResponse(
-                1L, "name", "name@mail.ru", 123, new Date(), new Date()
+                1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
         );
         UserResponse response2 = new UserResponse(
-                2L, "name1", "name1@mail.ru", 12, new Date(), new Date()
+                2L, "name1", "name1@mail.ru", 12, new Date(), new Date(), 0L
         );
-        when(userService.getUsers()).thenReturn(List.of(response1, response2));
+        when(userService.getUsers(null, null, null)).thenReturn(new UserPage(List.of(response1, response2), 20, null, null));
 
         mockMvc.perform(get("/users")
                         .accept(MediaTypes.HAL_JSON))
@@ -83,7 +92,24 @@ class UserHateoasTest {
                 .andExpect(jsonPath("$._embedded.userResponseList[1]._links.self.href",
                         endsWith("/users/read/2")))
 
-                .andExpect(jsonPath("$._links.create.href", endsWith("/users/create")));
+                .andExpect(jsonPath("$._links.create.href", endsWith("/users/create")))
+                .andExpect(jsonPath("$._links.next").doesNotExist())
+                .andExpect(jsonPath("$._links.prev").doesNotExist());
+    }
+
+    @Test
+    void getUsersPageHateoas() throws Exception {
+        UserResponse response = new UserResponse(
+                3L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
+        );
+        when(userService.getUsers(null, 4L, 1)).thenReturn(new UserPage(List.of(response), 1, 3L, 3L));
+
+        mockMvc.perform(get("/users?before=4&limit=1")
+                        .accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href", endsWith("/users?before=4&limit=1")))
+                .andExpect(jsonPath("$._links.next.href", endsWith("/users?after=3&limit=1")))
+                .andExpect(jsonPath("$._links.prev.href", endsWith("/users?before=3&limit=1")));
     }
 
     @Test
@@ -91,7 +117,7 @@ class UserHateoasTest {
         CreateUserRequest request = new CreateUserRequest("name", "name@mail.ru", 123);
 
         UserResponse response = new UserResponse(
-                11L, "name", "name@mail.ru", 123, new Date(), new Date()
+                11L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L
         );
 
         when(userService.createUser(ArgumentMatchers.any(CreateUserRequest.class))).thenReturn(response);
@@ -111,9 +137,9 @@ class UserHateoasTest {
     @Test
     void updateUserHateoas() throws Exception {
         var request = new UpdateUserRequest("updated", "name@mail.ru", 12);
-        var response = new UserResponse(12L, "updated", "name@mail.ru", 12, new Date(), new Date());
+        var response = new UserResponse(12L, "updated", "name@mail.ru", 12, new Date(), new Date(), 0L);
 
-        when(userService.updateUser(12L, request)).thenReturn(response);
+        when(userService.updateUser(12L, request, null)).thenReturn(response);
 
         mockMvc.perform(put("/users/update/{id}", 12L)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,94 @@
+package org.example.userservice.hateoas;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HAL serialization, configured the way Spring HATEOAS sets up the {@code application/hal+json}
+ * message converter, against the plain JSON of the internal endpoints. The body sizes of both
+ * representations are printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"1", "100"})
+    int size;
+
+    ObjectMapper halMapper;
+    ObjectMapper plainMapper;
+    EntityModel<UserResponse> model;
+    UserResponse user;
+    CollectionModel<EntityModel<UserResponse>> halPage;
+    UserPage plainPage;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        halMapper = new ObjectMapper();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new EvoInflectorLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        plainMapper = new ObjectMapper();
+
+        Date date = new Date();
+        List<UserResponse> users = new ArrayList<>(size);
+        List<EntityModel<UserResponse>> models = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            UserResponse response = new UserResponse(id, "name", id + "name@mail.ru", 21, date, date, 0L);
+            users.add(response);
+            models.add(EntityModel.of(response,
+                    Link.of("http://localhost:8080/users/read/" + id).withSelfRel(),
+                    Link.of("http://localhost:8080/users", "all-users"),
+                    Link.of("http://localhost:8080/users/update/" + id, "update"),
+                    Link.of("http://localhost:8080/users/delete/" + id, "delete")));
+        }
+        user = users.getFirst();
+        model = models.getFirst();
+        halPage = CollectionModel.of(models,
+                Link.of("http://localhost:8080/users").withSelfRel(),
+                Link.of("http://localhost:8080/users/create", "create"));
+        plainPage = new UserPage(users, size, null, null);
+
+        System.out.printf("%nsize=%d bytes: hal user=%d, plain user=%d, hal page=%d, plain page=%d%n", size,
+                entityModel().length, userResponse().length, halPage().length, plainPage().length);
+    }
+
+    @Benchmark
+    public byte[] entityModel() throws JsonProcessingException {
+        return halMapper.writeValueAsBytes(model);
+    }
+
+    @Benchmark
+    public byte[] userResponse() throws JsonProcessingException {
+        return plainMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] halPage() throws JsonProcessingException {
+        return halMapper.writeValueAsBytes(halPage);
+    }
+
+    @Benchmark
+    public byte[] plainPage() throws JsonProcessingException {
+        return plainMapper.writeValueAsBytes(plainPage);
+    }
+}
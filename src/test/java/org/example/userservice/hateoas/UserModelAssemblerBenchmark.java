@@ -0,0 +1,81 @@
+package org.example.userservice.hateoas;
+
+import org.example.userservice.controller.UserController;
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserModelAssemblerBenchmark {
+
+    @Param({"1", "100", "10000"})
+    int size;
+
+    UserModelAssembler assembler;
+    UserResponse user;
+    UserPage page;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assembler = new UserModelAssembler();
+        Date date = new Date();
+        List<UserResponse> users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            users.add(new UserResponse(id, "name", id + "name@mail.ru", 21, date, date, 0L));
+        }
+        user = users.getFirst();
+        page = new UserPage(users, size, (long) size, 1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public EntityModel<UserResponse> toModel() {
+        return assembler.toModel(user);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<UserResponse>> toCollectionModel() {
+        return assembler.toCollectionModel(page);
+    }
+
+    /**
+     * The per-user links built with {@code linkTo(methodOn(...))} on every call, for comparison
+     * with the cached templates of {@link #toModel()}.
+     */
+    @Benchmark
+    public EntityModel<UserResponse> toModelWithLinkTo() {
+        Link selfRelation = linkTo(methodOn(UserController.class).getUserById(user.id(), null)).withSelfRel();
+        Link allUsers = linkTo(UserController.class).withRel("all-users");
+        Link updateUser = linkTo(methodOn(UserController.class).updateUser(user.id(), null, null)).withRel("update");
+        Link deleteUser = linkTo(methodOn(UserController.class).deleteUser(user.id())).withRel("delete");
+        return EntityModel.of(user, selfRelation, allUsers, updateUser, deleteUser);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.userservice.hateoas;
+
+import org.example.userservice.controller.UserController;
+import org.example.userservice.dto.UserPage;
+import org.example.userservice.dto.UserResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+class UserModelAssemblerTest {
+
+    UserModelAssembler assembler = new UserModelAssembler();
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void toModelLinksMatchLinkTo() {
+        currentRequest("localhost", 8080);
+        UserResponse user = new UserResponse(42L, "name", "name@mail.ru", 21, new Date(), new Date(), 0L);
+
+        EntityModel<UserResponse> model = assembler.toModel(user);
+
+        assertThat(hrefs(model.getLinks().toList())).containsExactly(
+                linkTo(methodOn(UserController.class).getUserById(42L, null)).withSelfRel().getHref(),
+                linkTo(UserController.class).withRel("all-users").getHref(),
+                linkTo(methodOn(UserController.class).updateUser(42L, null, null)).withRel("update").getHref(),
+                linkTo(methodOn(UserController.class).deleteUser(42L)).withRel("delete").getHref());
+    }
+
+    @Test
+    void templatesFollowTheRequestBase() {
+        UserResponse user = new UserResponse(7L, "name", "name@mail.ru", 21, new Date(), new Date(), 0L);
+
+        currentRequest("localhost", 8080);
+        String first = assembler.toModel(user).getRequiredLink("self").getHref();
+        currentRequest("users.example.org", 443);
+        String second = assembler.toModel(user).getRequiredLink("self").getHref();
+
+        assertThat(first).isEqualTo("http://localhost:8080/users/read/7");
+        assertThat(second).isEqualTo("http://users.example.org:443/users/read/7");
+    }
+
+    @Test
+    void collectionHasCreateLink() {
+        currentRequest("localhost", 8080);
+        UserResponse user = new UserResponse(1L, "name", "name@mail.ru", 21, new Date(), new Date(), 0L);
+
+        CollectionModel<EntityModel<UserResponse>> model = assembler.toCollectionModel(new UserPage(List.of(user), 20, null, null));
+
+        assertThat(model.getRequiredLink("create").getHref())
+                .isEqualTo(linkTo(methodOn(UserController.class).createUser(null, null, null)).withRel("create").getHref());
+    }
+
+    private static void currentRequest(String host, int port) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        request.setServerName(host);
+        request.setServerPort(port);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static List<String> hrefs(List<Link> links) {
+        return links.stream().map(Link::getHref).toList();
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.userservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.domain.IdempotencyKey;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.exception.types.ConflictException;
+import org.example.userservice.exception.types.UnprocessableEntityException;
+import org.example.userservice.repository.IdempotencyKeyRepository;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    IdempotencyKeyRepository repository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    IdempotencyStore store;
+
+    CreateUserRequest request = new CreateUserRequest("name", "name@mail.ru", 123);
+    UserResponse user = new UserResponse(1L, "name", "name@mail.ru", 123, new Date(), new Date(), 0L);
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(userService, repository, objectMapper, transactionManager,
+                new IdempotencyProperties(Duration.ofHours(24), 100, 2), meterRegistry);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findById("key")).thenReturn(Optional.empty());
+        when(userService.createUser(request)).thenAnswer(invocation -> {
+            release.await();
+            return user;
+        });
+
+        List<Future<IdempotencyStore.Result>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(clients.submit(() -> store.createUser("key", request)));
+            }
+            release.countDown();
+        }
+
+        int created = 0;
+        for (Future<IdempotencyStore.Result> result : results) {
+            assertThat(result.get().user()).isEqualTo(user);
+            created += result.get().replayed() ? 0 : 1;
+        }
+        assertThat(created).isEqualTo(1);
+        verify(userService, times(1)).createUser(request);
+        verify(repository, times(1)).saveAndFlush(any(IdempotencyKey.class));
+        assertThat(meterRegistry.get("user.idempotency.replayed").tag("source", "memory").counter().count())
+                .isEqualTo(7);
+    }
+
+    @Test
+    void replaysResponseStoredByAnotherNode() throws Exception {
+        when(repository.findById("key")).thenReturn(Optional.of(stored(request, new Date())));
+
+        IdempotencyStore.Result result = store.createUser("key", request);
+
+        assertThat(result).isEqualTo(new IdempotencyStore.Result(user, true));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void retryWithDifferentEmailCaseMatchesFirstRequest() {
+        when(repository.findById("key")).thenReturn(Optional.empty());
+        when(userService.createUser(request)).thenReturn(user);
+        store.createUser("key", request);
+
+        IdempotencyStore.Result retry = store.createUser("key", new CreateUserRequest("name", " Name@Mail.ru ", 123));
+
+        assertThat(retry).isEqualTo(new IdempotencyStore.Result(user, true));
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequest() {
+        when(repository.findById("key")).thenReturn(Optional.empty());
+        when(userService.createUser(request)).thenReturn(user);
+        store.createUser("key", request);
+
+        assertThrows(UnprocessableEntityException.class,
+                () -> store.createUser("key", new CreateUserRequest("other", "name@mail.ru", 123)));
+    }
+
+    @Test
+    void conflictWithKeyCommittedByAnotherNodeReplaysIt() throws Exception {
+        when(repository.findById("key"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored(request, new Date())));
+        when(userService.createUser(request)).thenThrow(new ConflictException("Email already in use"));
+
+        IdempotencyStore.Result result = store.createUser("key", request);
+
+        assertThat(result).isEqualTo(new IdempotencyStore.Result(user, true));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void failedRequestIsNotRememberedSoItCanBeRetried() {
+        when(repository.findById("key")).thenReturn(Optional.empty());
+        when(userService.createUser(request))
+                .thenThrow(new ConflictException("Email already in use"))
+                .thenReturn(user);
+
+        assertThrows(ConflictException.class, () -> store.createUser("key", request));
+
+        assertThat(store.createUser("key", request)).isEqualTo(new IdempotencyStore.Result(user, false));
+    }
+
+    @Test
+    void expiredKeyIsDeletedAndRequestRunsAgain() throws Exception {
+        Date dayAndMinuteAgo = new Date(System.currentTimeMillis() - Duration.ofHours(24).plusMinutes(1).toMillis());
+        when(repository.findById("key")).thenReturn(Optional.of(stored(request, dayAndMinuteAgo)));
+        when(userService.createUser(request)).thenReturn(user);
+
+        assertThat(store.createUser("key", request)).isEqualTo(new IdempotencyStore.Result(user, false));
+        verify(repository).deleteById("key");
+    }
+
+    @Test
+    void purgeDeletesExpiredKeysInBatches() {
+        when(repository.deleteCreatedBefore(any(Date.class), eq(2))).thenReturn(2, 2, 1);
+
+        store.purgeExpired();
+
+        verify(repository, times(3)).deleteCreatedBefore(any(Date.class), eq(2));
+        assertThat(meterRegistry.get("user.idempotency.purged").counter().count()).isEqualTo(5);
+    }
+
+    private IdempotencyKey stored(CreateUserRequest request, Date createdAt) throws Exception {
+        return new IdempotencyKey("key", IdempotencyStore.requestHash(request), objectMapper.writeValueAsString(user),
+                createdAt);
+    }
+}
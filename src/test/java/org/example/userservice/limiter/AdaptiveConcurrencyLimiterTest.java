@@ -0,0 +1,65 @@
+package org.example.userservice.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsRequestsOverLimitUntilOneIsReleased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 2, 1.5, Duration.ZERO);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+
+        first.release(false);
+        first.release(false);
+
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, Duration.ZERO);
+
+        windows(limiter, 20, 10);
+        int grown = limiter.limit();
+        windows(limiter, 20, 100);
+
+        assertThat(grown).isGreaterThan(20);
+        assertThat(limiter.limit()).isLessThan(grown / 2).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void doesNotGrowWhileMostOfLimitIsUnused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, Duration.ZERO);
+
+        for (int i = 0; i < 20 * 10; i++) {
+            limiter.onSample(Duration.ofMillis(10).toNanos(), 1);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void rejectsInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 4, 200, 1.5, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(20, 40, 30, 1.5, Duration.ZERO));
+    }
+
+    /** Feeds full windows of requests that kept the whole limit busy. */
+    private static void windows(AdaptiveConcurrencyLimiter limiter, int windows, long rttMillis) {
+        for (int i = 0; i < windows * 10; i++) {
+            limiter.onSample(Duration.ofMillis(rttMillis).toNanos(), limiter.limit());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.userservice.limiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.exception.types.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrencyLimitInterceptorTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(new ConcurrencyLimitProperties(
+            new ConcurrencyLimitProperties.Limit(1, 1, 1),
+            new ConcurrencyLimitProperties.Limit(1, 1, 1),
+            1.5, Duration.ofMillis(100), Duration.ofSeconds(2)), meterRegistry);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void readsAndWritesHaveSeparateLimits() {
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/users");
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/users/create");
+
+        assertThat(interceptor.preHandle(read, response, null)).isTrue();
+        assertThat(interceptor.preHandle(write, response, null)).isTrue();
+
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest("GET", "/users/read/1"), response, null));
+        assertThat(exception.getRetryAfter()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(meterRegistry.get("user.concurrency.rejected").tag("kind", "read").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.concurrency.rejected").tag("kind", "write").counter().count()).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnCompletionOnly() {
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/users/export");
+        interceptor.preHandle(first, response, null);
+        interceptor.afterConcurrentHandlingStarted(first, response, null);
+
+        // The dispatch that completes the asynchronous request reuses its permit.
+        assertThat(interceptor.preHandle(first, response, null)).isTrue();
+        assertThrows(ServiceUnavailableException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest("GET", "/users"), response, null));
+
+        interceptor.afterCompletion(first, response, null, null);
+
+        assertThat(meterRegistry.get("user.concurrency.in-flight").tag("kind", "read").gauge().value()).isZero();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("GET", "/users"), response, null)).isTrue();
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.userservice.mapper;
+
+import org.example.userservice.domain.User;
+import org.example.userservice.dto.CreateUserRequest;
+import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    UserMapper mapper;
+    User user;
+    CreateUserRequest createRequest;
+    UpdateUserRequest updateRequest;
+
+    @Setup
+    public void setUp() {
+        mapper = new UserMapper();
+        Date date = new Date();
+        user = new User(1L, "name", "name@mail.ru", 21, date, date);
+        createRequest = new CreateUserRequest("name", "name@mail.ru", 21);
+        updateRequest = new UpdateUserRequest("newName", null, 22);
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return mapper.toResponse(user);
+    }
+
+    @Benchmark
+    public User fromCreate() {
+        return mapper.fromCreate(createRequest);
+    }
+
+    @Benchmark
+    public User applyUpdate() {
+        mapper.applyUpdate(updateRequest, user);
+        return user;
+    }
+}
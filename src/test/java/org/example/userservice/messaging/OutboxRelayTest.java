@@ -0,0 +1,149 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.domain.OutboxEvent;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.example.userservice.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    OutboxRepository outboxRepository;
+
+    @Mock
+    UserKafkaProducer userKafkaProducer;
+
+    @Mock
+    UserStatePublisher userStatePublisher;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxRepository, userKafkaProducer, userStatePublisher, objectMapper,
+                new OutboxProperties(2, Duration.ofSeconds(1)), meterRegistry);
+    }
+
+    @Test
+    void relayDeletesAcknowledgedEvents() throws Exception {
+        OutboxEvent first = event(1L, "first@mail.ru");
+        OutboxEvent second = event(2L, "second@mail.ru");
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(first, second));
+        when(userKafkaProducer.sendUserToKafka(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(userKafkaProducer, times(2)).sendUserToKafka(any());
+        verify(outboxRepository).deleteAllInBatch(List.of(first, second));
+        assertThat(meterRegistry.get("user.outbox.relayed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void relayKeepsEventsFromFirstFailure() throws Exception {
+        OutboxEvent first = event(1L, "first@mail.ru");
+        OutboxEvent second = event(2L, "second@mail.ru");
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(first, second));
+        when(userKafkaProducer.sendUserToKafka(any()))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+
+        verify(outboxRepository).deleteAllInBatch(List.of(first));
+        assertThat(meterRegistry.get("user.outbox.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void relayDoesNothingWhenOutboxIsEmpty() {
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of());
+
+        relay.relay();
+
+        verifyNoInteractions(userKafkaProducer);
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        assertThat(meterRegistry.get("user.outbox.lag").timeGauge().value()).isZero();
+    }
+
+    @Test
+    void relayPublishesStateOfLastEventOfEachUser() throws Exception {
+        Date date = new Date();
+        OutboxEvent created = event(1L, 7L, OperationType.CREATE, new UserResponse(7L, "name", "name@mail.ru", 1, date, date, 0L));
+        UserResponse state = new UserResponse(7L, "newName", "name@mail.ru", 1, date, date, 1L);
+        OutboxEvent updated = event(2L, 7L, OperationType.UPDATE, state);
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(created, updated));
+        when(userKafkaProducer.sendUserToKafka(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(userStatePublisher.publish(7L, state)).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(userStatePublisher).publish(7L, state);
+        verifyNoMoreInteractions(userStatePublisher);
+        verify(outboxRepository).deleteAllInBatch(List.of(created, updated));
+    }
+
+    @Test
+    void relayKeepsEventWhoseStateWasNotAcknowledged() throws Exception {
+        Date date = new Date();
+        UserResponse state = new UserResponse(8L, "name", "name@mail.ru", 1, date, date, 0L);
+        OutboxEvent first = event(1L, 8L, OperationType.CREATE, state);
+        OutboxEvent second = event(2L, 7L, OperationType.DELETE, null);
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(first, second));
+        when(userKafkaProducer.sendUserToKafka(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(userStatePublisher.publish(8L, state)).thenReturn(CompletableFuture.completedFuture(null));
+        when(userStatePublisher.publish(7L, null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+
+        verify(outboxRepository).deleteAllInBatch(List.of(first));
+        assertThat(meterRegistry.get("user.outbox.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void relaysEventWithoutStateAndPublishesNoState() throws Exception {
+        OutboxEvent updated = event(1L, 7L, OperationType.UPDATE, null);
+        when(outboxRepository.findByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(updated));
+        when(userKafkaProducer.sendUserToKafka(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verifyNoInteractions(userStatePublisher);
+        verify(outboxRepository).deleteAllInBatch(List.of(updated));
+    }
+
+    private OutboxEvent event(Long id, String email) throws Exception {
+        UserEvent userEvent = new UserEvent();
+        userEvent.setEmail(email);
+        userEvent.setOperation(OperationType.CREATE);
+        return new OutboxEvent(id, objectMapper.writeValueAsString(userEvent), null, new Date());
+    }
+
+    private OutboxEvent event(Long id, Long userId, OperationType operation, UserResponse state) throws Exception {
+        UserEvent userEvent = new UserEvent();
+        userEvent.setUserId(userId);
+        userEvent.setOperation(operation);
+        return new OutboxEvent(id, objectMapper.writeValueAsString(userEvent),
+                state == null ? null : objectMapper.writeValueAsString(state), new Date());
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserEventCodecTest {
+
+    /** Version 1 of CREATE name@mail.ru. Readers must keep decoding it. */
+    private static final byte[] CREATE_V1 = {
+            0x00, 0x01,
+            0x08, 0x01,
+            0x12, 0x0C, 'n', 'a', 'm', 'e', '@', 'm', 'a', 'i', 'l', '.', 'r', 'u'};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @EnumSource(OperationType.class)
+    void roundTripsEveryOperation(OperationType operation) {
+        UserEvent event = event("name@mail.ru", operation);
+
+        assertThat(UserEventCodec.decode(UserEventCodec.encode(event))).isEqualTo(event);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, -1, 123, Integer.MAX_VALUE, Integer.MIN_VALUE})
+    void roundTripsUpdateWithAllFields(int age) {
+        UserEvent event = event("name@mail.ru", OperationType.UPDATE);
+        event.setUserId(Long.MAX_VALUE);
+        event.setName("\u0418\u043C\u044F");
+        event.setAge(age);
+        event.setVersion(7L);
+
+        assertThat(UserEventCodec.decode(UserEventCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void encodesSmallAgesInOneByte() {
+        UserEvent event = new UserEvent();
+        event.setAge(-1);
+
+        assertThat(UserEventCodec.encode(event)).containsExactly(0x00, 0x01, 5 << 3, 0x01);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "\u0438\u043C\u044F@\u043F\u043E\u0447\u0442\u0430.\u0440\u0444", "\u540D\u524D@mail.jp", "smile\uD83D\uDE00@mail.ru", "broken\uD800@mail.ru"})
+    void encodesEmailsAsUtf8(String email) {
+        byte[] data = UserEventCodec.encode(event(email, OperationType.CREATE));
+
+        byte[] utf8 = email.getBytes(StandardCharsets.UTF_8);
+        assertThat(Arrays.copyOfRange(data, data.length - utf8.length, data.length)).isEqualTo(utf8);
+        assertThat(UserEventCodec.decode(data).getEmail()).isEqualTo(new String(utf8, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void omitsAbsentFields() {
+        UserEvent empty = new UserEvent();
+
+        assertThat(UserEventCodec.encode(empty)).containsExactly(0x00, 0x01);
+        assertThat(UserEventCodec.decode(new byte[]{0x00, 0x01})).isEqualTo(empty);
+    }
+
+    @Test
+    void encodesVersionOneLayout() {
+        assertThat(UserEventCodec.encode(event("name@mail.ru", OperationType.CREATE))).isEqualTo(CREATE_V1);
+        assertThat(UserEventCodec.decode(CREATE_V1)).isEqualTo(event("name@mail.ru", OperationType.CREATE));
+    }
+
+    @Test
+    void skipsFieldsAddedByNewerWriters() {
+        byte[] data = concat(CREATE_V1, new byte[]{
+                (byte) (9 << 3), (byte) 0xAC, 0x02,
+                (byte) (10 << 3 | 2), 0x03, 'x', 'y', 'z'});
+
+        assertThat(UserEventCodec.decode(data)).isEqualTo(event("name@mail.ru", OperationType.CREATE));
+    }
+
+    @Test
+    void readsUnknownOperationAsNull() {
+        byte[] data = {0x00, 0x01, 0x08, 0x7F};
+
+        assertThat(UserEventCodec.decode(data).getOperation()).isNull();
+    }
+
+    @Test
+    void rejectsNewerSchemaVersion() {
+        byte[] data = CREATE_V1.clone();
+        data[1] = 0x02;
+
+        assertThrows(IllegalArgumentException.class, () -> UserEventCodec.decode(data));
+    }
+
+    @Test
+    void rejectsTruncatedEvent() {
+        byte[] data = Arrays.copyOf(CREATE_V1, CREATE_V1.length - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> UserEventCodec.decode(data));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {UserEventCodec.EMAIL, 10})
+    void rejectsNegativeLength(int field) {
+        // A ten-byte varint with the top bit set reads as -1.
+        byte[] data = {0x00, 0x01, (byte) (field << 3 | 2),
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01, 'x'};
+
+        assertThrows(IllegalArgumentException.class, () -> UserEventCodec.decode(data));
+    }
+
+    @Test
+    void varintsUseSevenBitGroups() {
+        byte[] out = new byte[10];
+
+        assertThat(UserEventCodec.writeVarint(out, 0, 300)).isEqualTo(2);
+        assertThat(Arrays.copyOf(out, 2)).containsExactly(0xAC, 0x02);
+        assertThat(UserEventCodec.varintSize(Long.MAX_VALUE)).isEqualTo(9);
+        assertThat(UserEventCodec.varintSize(-1L)).isEqualTo(10);
+    }
+
+    @Test
+    void serializerUsesFormatOfTopicAndFallsBackToJson() {
+        Serializer<UserEvent> serializer = KafkaProducerConfig.userEventSerializer(mapper,
+                Map.of("users", UserEventFormat.BINARY));
+        UserEvent event = event("name@mail.ru", OperationType.DELETE);
+
+        byte[] binary = serializer.serialize("users", event);
+        byte[] json = serializer.serialize("users-legacy", event);
+
+        assertThat(UserEventCodec.isBinary(binary)).isTrue();
+        assertThat(new String(json, StandardCharsets.UTF_8)).startsWith("{");
+        assertThat(binary.length).isLessThan(json.length / 2);
+        assertThat(serializer.serialize("users", null)).isNull();
+    }
+
+    @Test
+    void deserializerReadsBothFormats() {
+        Serializer<UserEvent> serializer = KafkaProducerConfig.userEventSerializer(mapper,
+                Map.of("users", UserEventFormat.BINARY));
+        UserEventDeserializer deserializer = new UserEventDeserializer(mapper);
+        UserEvent event = event("name@mail.ru", OperationType.CREATE);
+
+        assertThat(deserializer.deserialize("users", serializer.serialize("users", event))).isEqualTo(event);
+        assertThat(deserializer.deserialize("users", serializer.serialize("other", event))).isEqualTo(event);
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("users", new byte[]{0x00}));
+    }
+
+    private static UserEvent event(String email, OperationType operation) {
+        UserEvent event = new UserEvent();
+        event.setEmail(email);
+        event.setOperation(operation);
+        return event;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON and binary user events through the producer serializer and the consumer deserializer.
+ * The size of one event in each format is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventSerializerBenchmark {
+
+    Serializer<UserEvent> serializer;
+    UserEventDeserializer deserializer;
+    UserEvent event;
+    byte[] jsonBytes;
+    byte[] binaryBytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        serializer = KafkaProducerConfig.userEventSerializer(mapper, Map.of("users-binary", UserEventFormat.BINARY));
+        deserializer = new UserEventDeserializer(mapper);
+        event = new UserEvent();
+        event.setEmail("name@mail.ru");
+        event.setOperation(OperationType.CREATE);
+        jsonBytes = serializer.serialize("users", event);
+        binaryBytes = serializer.serialize("users-binary", event);
+        System.out.printf("bytes per event: json=%d, binary=%d%n", jsonBytes.length, binaryBytes.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public byte[] json() {
+        return serializer.serialize("users", event);
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return serializer.serialize("users-binary", event);
+    }
+
+    @Benchmark
+    public UserEvent readJson() {
+        return deserializer.deserialize("users", jsonBytes);
+    }
+
+    @Benchmark
+    public UserEvent readBinary() {
+        return deserializer.deserialize("users-binary", binaryBytes);
+    }
+}
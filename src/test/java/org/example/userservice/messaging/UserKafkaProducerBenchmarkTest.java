@@ -0,0 +1,85 @@
+package org.example.userservice.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of {@link UserKafkaProducer} against an embedded broker, with and without batching.
+ * Run with {@code mvn test -Dbenchmark=true -Dtest=UserKafkaProducerBenchmarkTest}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserKafkaProducerBenchmarkTest {
+
+    private static final int EVENTS = 50_000;
+
+    static EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, "users");
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void throughputWithAndWithoutBatching() {
+        double unbatched = eventsPerSecond(Duration.ZERO, DataSize.ofBytes(0), "none");
+        double batched = eventsPerSecond(Duration.ofMillis(5), DataSize.ofKilobytes(64), "lz4");
+
+        System.out.printf("user events/s: unbatched=%.0f, batched=%.0f%n", unbatched, batched);
+        assertThat(batched).isGreaterThan(unbatched);
+    }
+
+    private double eventsPerSecond(Duration linger, DataSize batchSize, String compression) {
+        KafkaProducerProperties properties = new KafkaProducerProperties(broker.getBrokersAsString(), linger, batchSize,
+                compression, true, 1000, KafkaProducerProperties.BackpressurePolicy.BLOCK, Duration.ofSeconds(30), 0,
+                Map.of());
+        DefaultKafkaProducerFactory<String, UserEvent> producerFactory = (DefaultKafkaProducerFactory<String, UserEvent>)
+                new KafkaProducerConfig().producerFactory(new ObjectMapper(), properties, new SimpleMeterRegistry());
+        try {
+            UserKafkaProducer producer = new UserKafkaProducer(new KafkaTemplate<>(producerFactory), properties,
+                    new SimpleMeterRegistry(), Runnable::run);
+            send(producer, 1_000);
+
+            long start = System.nanoTime();
+            send(producer, EVENTS);
+            return EVENTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private static void send(UserKafkaProducer producer, int count) {
+        List<CompletableFuture<SendResult<String, UserEvent>>> sends = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UserEvent userEvent = new UserEvent();
+            userEvent.setEmail(i + "name@mail.ru");
+            userEvent.setOperation(OperationType.CREATE);
+            sends.add(producer.sendUserToKafka(userEvent));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.userservice.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserKafkaProducerTest {
+
+    @Mock
+    KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void sendCompletesWithBrokerResult() throws Exception {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.BLOCK, 1);
+        SendResult<String, UserEvent> sendResult = new SendResult<>(null, null);
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class))).thenReturn(CompletableFuture.completedFuture(sendResult));
+
+        assertThat(producer.sendUserToKafka(event("name@mail.ru")).get()).isSameAs(sendResult);
+        assertThat(meterRegistry.get("user.kafka.send").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.kafka.send.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void eventsAreKeyedByUserId() throws Exception {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.BLOCK, 1);
+        UserEvent userEvent = event("name@mail.ru");
+        userEvent.setUserId(42L);
+        when(kafkaTemplate.send("users", "42", userEvent)).thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        producer.sendUserToKafka(userEvent).get();
+
+        verify(kafkaTemplate).send("users", "42", userEvent);
+    }
+
+    @Test
+    void failedSendIsCountedAndReleasesSlot() {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.DROP, 1);
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        CompletableFuture<SendResult<String, UserEvent>> first = producer.sendUserToKafka(event("first@mail.ru"));
+        CompletableFuture<SendResult<String, UserEvent>> second = producer.sendUserToKafka(event("second@mail.ru"));
+
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+        verify(kafkaTemplate, times(2)).send(eq("users"), any(), any(UserEvent.class));
+        assertThat(meterRegistry.get("user.kafka.send.errors").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void dropRejectsWhenInFlightLimitReached() {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.DROP, 1);
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class))).thenReturn(new CompletableFuture<>());
+
+        producer.sendUserToKafka(event("first@mail.ru"));
+        CompletableFuture<SendResult<String, UserEvent>> dropped = producer.sendUserToKafka(event("second@mail.ru"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, dropped::get);
+        assertThat(exception.getCause()).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get("user.kafka.send.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void spillDispatchesQueuedSendWhenSlotFrees() {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.SPILL, 1);
+        CompletableFuture<SendResult<String, UserEvent>> firstAck = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class)))
+                .thenReturn(firstAck)
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        producer.sendUserToKafka(event("first@mail.ru"));
+        CompletableFuture<SendResult<String, UserEvent>> spilled = producer.sendUserToKafka(event("second@mail.ru"));
+
+        assertThat(spilled).isNotDone();
+        assertThat(meterRegistry.get("user.kafka.send.spilled").gauge().value()).isEqualTo(1);
+
+        firstAck.complete(new SendResult<>(null, null));
+
+        assertThat(spilled).isCompleted();
+        assertThat(meterRegistry.get("user.kafka.send.spilled").gauge().value()).isZero();
+        verify(kafkaTemplate, times(2)).send(eq("users"), any(), any(UserEvent.class));
+    }
+
+    @Test
+    void spilledEventsOfUserKeepTheirOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.SPILL, 2, 1000, executor);
+        Map<String, List<String>> sentByKey = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class))).thenAnswer(invocation -> {
+            sentByKey.computeIfAbsent(invocation.getArgument(1), key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(invocation.getArgument(2, UserEvent.class).getEmail());
+            // Acknowledged later on another thread, like the Kafka I/O thread does.
+            return new CompletableFuture<SendResult<String, UserEvent>>()
+                    .completeOnTimeout(new SendResult<>(null, null), 1, TimeUnit.MILLISECONDS);
+        });
+
+        List<CompletableFuture<SendResult<String, UserEvent>>> sends = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            UserEvent userEvent = event(i + "@mail.ru");
+            userEvent.setUserId((long) (i % 4));
+            sends.add(producer.sendUserToKafka(userEvent));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(sentByKey).hasSize(4);
+        sentByKey.forEach((key, emails) -> {
+            List<Integer> order = emails.stream().map(email -> Integer.parseInt(email.substring(0, email.indexOf('@')))).toList();
+            assertThat(order).hasSize(100).isSorted();
+        });
+    }
+
+    @Test
+    void blockFailsAfterTimeout() {
+        UserKafkaProducer producer = producer(KafkaProducerProperties.BackpressurePolicy.BLOCK, 1);
+        when(kafkaTemplate.send(eq("users"), any(), any(UserEvent.class))).thenReturn(new CompletableFuture<>());
+
+        producer.sendUserToKafka(event("first@mail.ru"));
+        CompletableFuture<SendResult<String, UserEvent>> blocked = producer.sendUserToKafka(event("second@mail.ru"));
+
+        assertThat(blocked).isCompletedExceptionally();
+        verify(kafkaTemplate, times(1)).send(eq("users"), any(), any(UserEvent.class));
+    }
+
+    private UserKafkaProducer producer(KafkaProducerProperties.BackpressurePolicy policy, int maxInFlight) {
+        return producer(policy, maxInFlight, 10, Runnable::run);
+    }
+
+    private UserKafkaProducer producer(KafkaProducerProperties.BackpressurePolicy policy, int maxInFlight,
+                                       int spillCapacity, Executor executor) {
+        KafkaProducerProperties properties = new KafkaProducerProperties("localhost:9092", Duration.ofMillis(5),
+                DataSize.ofKilobytes(64), "lz4", true, maxInFlight, policy, Duration.ofMillis(10), spillCapacity, Map.of());
+        return new UserKafkaProducer(kafkaTemplate, properties, meterRegistry, executor);
+    }
+
+    private static UserEvent event(String email) {
+        UserEvent userEvent = new UserEvent();
+        userEvent.setEmail(email);
+        userEvent.setOperation(OperationType.CREATE);
+        return userEvent;
+    }
+}
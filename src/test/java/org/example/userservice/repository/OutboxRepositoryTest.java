@@ -0,0 +1,67 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.userservice.domain.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRepositoryTest {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    EntityManagerFactoryBuilder entityManagerFactoryBuilder;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void idsFollowInsertOrderAcrossInstances() {
+        // A second instance has an id generator of its own, like another node of the service.
+        LocalContainerEntityManagerFactoryBean otherInstance = entityManagerFactoryBuilder.dataSource(dataSource)
+                .packages(OutboxEvent.class)
+                .persistenceUnit("other-instance")
+                .properties(Map.of("hibernate.hbm2ddl.auto", "none"))
+                .build();
+        otherInstance.afterPropertiesSet();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                ids.add(insert(i % 2 == 0 ? entityManagerFactory : otherInstance.getObject(), "event-" + i));
+            }
+
+            assertThat(ids).isSorted().doesNotHaveDuplicates();
+        } finally {
+            otherInstance.destroy();
+        }
+    }
+
+    private static Long insert(EntityManagerFactory factory, String payload) {
+        EntityManager entityManager = factory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            OutboxEvent event = new OutboxEvent(payload, null);
+            entityManager.persist(event);
+            entityManager.getTransaction().commit();
+            return event.getId();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.UserServiceApplication;
+import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of reading users as managed entities in a read-write transaction and mapping
+ * them, against the read-only {@link UserResponse} projections. Runs on the H2 database of the
+ * test profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int PAGE_SIZE = 100;
+
+    ConfigurableApplicationContext context;
+    UserRepository userRepository;
+    UserMapper userMapper;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+    long id;
+    List<Long> pageIds;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("eureka.client.enabled=false", "logging.level.org.hibernate.SQL=info")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setName("name" + i);
+            user.setEmail(i + "name@mail.ru");
+            user.setAge(i);
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+        id = users.get(USERS / 2).getId();
+        pageIds = users.subList(0, PAGE_SIZE).stream().map(User::getId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserResponse readEntity() {
+        return readWrite.execute(status -> userMapper.toResponse(userRepository.findById(id).orElseThrow()));
+    }
+
+    @Benchmark
+    public UserResponse readProjection() {
+        return readOnly.execute(status -> userRepository.findResponseById(id).orElseThrow());
+    }
+
+    @Benchmark
+    public List<UserResponse> pageEntities() {
+        return readWrite.execute(status -> {
+            List<UserResponse> page = new ArrayList<>(PAGE_SIZE);
+            for (User user : userRepository.findAllById(pageIds)) {
+                page.add(userMapper.toResponse(user));
+            }
+            return page;
+        });
+    }
+
+    @Benchmark
+    public List<UserResponse> pageProjection() {
+        return readOnly.execute(status -> userRepository.findResponses(Limit.of(PAGE_SIZE)));
+    }
+}
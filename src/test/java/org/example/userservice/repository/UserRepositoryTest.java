@@ -1,11 +1,17 @@
 package org.example.userservice.repository;
 
 import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -25,6 +31,44 @@ class UserRepositoryTest {
 
         assertThat(userRepository.existsUserByEmail("name@mail.ru")).isTrue();
         assertThat(userRepository.findById(saved.getId())).isPresent();
+        assertThat(userRepository.findResponseById(saved.getId()))
+                .hasValueSatisfying(response -> assertThat(response.email()).isEqualTo("name@mail.ru"));
+    }
+
+    @Test
+    void findVersionByIdReadsVersionColumn() {
+        var u = new User();
+        u.setName("name");
+        u.setEmail("name@mail.ru");
+        u.setAge(123);
+        var saved = userRepository.saveAndFlush(u);
+
+        assertThat(userRepository.findVersionById(saved.getId())).hasValue(0L);
+        assertThat(userRepository.findVersionById(saved.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void updateReturningWritesGivenFieldsAndBumpsVersion() {
+        var u = new User();
+        u.setName("name");
+        u.setEmail("name@mail.ru");
+        u.setAge(123);
+        var saved = userRepository.saveAndFlush(u);
+        Date updatedAt = new Date(saved.getUpdatedAt().getTime() + 1000);
+
+        assertThat(userRepository.updateReturning(saved.getId(), "newName", null, null, updatedAt, List.of(1L))).isEmpty();
+
+        UserResponse updated = userRepository.updateReturning(saved.getId(), "newName", null, null, updatedAt, List.of(0L))
+                .orElseThrow();
+        assertThat(updated.name()).isEqualTo("newName");
+        assertThat(updated.email()).isEqualTo("name@mail.ru");
+        assertThat(updated.age()).isEqualTo(123);
+        assertThat(updated.version()).isEqualTo(1L);
+        assertThat(updated.updatedAt().getTime()).isEqualTo(updatedAt.getTime());
+
+        assertThat(userRepository.updateReturning(saved.getId(), null, null, 30, updatedAt, null))
+                .hasValueSatisfying(response -> assertThat(response.version()).isEqualTo(2L));
+        assertThat(userRepository.updateReturning(saved.getId() + 1, null, null, 30, updatedAt, null)).isEmpty();
     }
 
     @Test
@@ -44,4 +88,36 @@ class UserRepositoryTest {
         Assertions.assertThrows(DataIntegrityViolationException.class,
                 () -> userRepository.saveAndFlush(user2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void keysetPagesById() {
+        for (int i = 0; i < 5; i++) {
+            var user = new User();
+            user.setName("name" + i);
+            user.setEmail(i + "name@mail.ru");
+            user.setAge(i);
+            userRepository.save(user);
+        }
+        List<UserResponse> firstPage = userRepository.findResponses(Limit.of(2));
+        Long cursor = firstPage.getLast().id();
+
+        List<UserResponse> nextPage = userRepository.findResponsesAfter(cursor, Limit.of(2));
+        List<UserResponse> previousPage = userRepository.findResponsesBefore(nextPage.getFirst().id(), Limit.of(2));
+
+        assertThat(firstPage).extracting(UserResponse::email).containsExactly("0name@mail.ru", "1name@mail.ru");
+        assertThat(nextPage).extracting(UserResponse::email).containsExactly("2name@mail.ru", "3name@mail.ru");
+        assertThat(previousPage).extracting(UserResponse::email).containsExactly("1name@mail.ru", "0name@mail.ru");
+    }
+
+    @Test
+    void findExistingEmailsReturnsOnlyTaken() {
+        var user = new User();
+        user.setName("name");
+        user.setEmail("name@mail.ru");
+        user.setAge(123);
+        userRepository.save(user);
+
+        assertThat(userRepository.findExistingEmails(List.of("name@mail.ru", "free@mail.ru")))
+                .containsExactly("name@mail.ru");
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the search statement for every supported filter and checks that H2 serves
+ * it from one of the search indexes declared on {@link User} rather than a table scan.
+ */
+@DataJpaTest
+class UserSearchPlanTest {
+
+    private static final Instant WEEK_AGO = Instant.now().minus(Duration.ofDays(7));
+    private static final Instant TOMORROW = Instant.now().plus(Duration.ofDays(1));
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    EntityManager entityManager;
+
+    @BeforeEach
+    void populate() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            User user = new User();
+            user.setName((i % 2 == 0 ? "john" : "mary") + i);
+            user.setEmail(i + "@domain" + (i % 20) + ".ru");
+            user.setAge(i % 80);
+            users.add(user);
+        }
+        userRepository.saveAllAndFlush(users);
+    }
+
+    static Stream<UserSearchFilter> filters() {
+        return Stream.of(
+                new UserSearchFilter("john1", null, null, null, null, null, null, null),
+                new UserSearchFilter(null, null, null, null, null, null, null, "domain7.ru"),
+                new UserSearchFilter(null, 18, 25, null, null, null, null, null),
+                new UserSearchFilter(null, null, null, WEEK_AGO, TOMORROW, null, null, null),
+                new UserSearchFilter(null, null, null, null, null, WEEK_AGO, TOMORROW, null),
+                new UserSearchFilter(null, 18, 25, WEEK_AGO, TOMORROW, null, null, null),
+                new UserSearchFilter("john1", 18, 25, WEEK_AGO, TOMORROW, null, null, null),
+                new UserSearchFilter(null, 18, 25, null, null, null, null, "domain7.ru"),
+                new UserSearchFilter("mary", null, null, null, null, WEEK_AGO, null, "domain7.ru"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("filters")
+    void searchUsesIndex(UserSearchFilter filter) {
+        UserRepositoryCustomImpl.SearchQuery searchQuery = UserRepositoryCustomImpl.searchQuery(filter, 100L, 21);
+        Query explain = entityManager.createNativeQuery("explain " + searchQuery.sql());
+        searchQuery.parameters().forEach(explain::setParameter);
+
+        String plan = String.valueOf(explain.getSingleResult());
+
+        assertThat(plan).contains("IDX_USERS_").doesNotContain("tableScan");
+    }
+
+    @Test
+    void searchCombinesFiltersAndPagesById() {
+        UserSearchFilter filter = new UserSearchFilter("john", 18, 25, WEEK_AGO, null, null, null, "@Domain4.ru");
+
+        List<UserResponse> firstPage = userRepository.search(filter, null, 3);
+        List<UserResponse> nextPage = userRepository.search(filter, firstPage.getLast().id(), 3);
+
+        assertThat(firstPage).hasSize(3);
+        assertThat(nextPage).isNotEmpty();
+        assertThat(nextPage.getFirst().id()).isGreaterThan(firstPage.getLast().id());
+        assertThat(Stream.concat(firstPage.stream(), nextPage.stream())).allSatisfy(user -> {
+            assertThat(user.name()).startsWith("john");
+            assertThat(user.age()).isBetween(18, 25);
+            assertThat(user.email()).endsWith("@domain4.ru");
+        });
+    }
+
+    @Test
+    void namePrefixIsMatchedLiterally() {
+        UserSearchFilter filter = new UserSearchFilter("jo%", null, null, null, null, null, null, null);
+
+        assertThat(userRepository.search(filter, null, 10)).isEmpty();
+    }
+}
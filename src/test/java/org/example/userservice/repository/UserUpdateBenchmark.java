@@ -0,0 +1,107 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.UserServiceApplication;
+import org.example.userservice.domain.User;
+import org.example.userservice.dto.UserResponse;
+import org.example.userservice.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Update throughput with concurrent writers: loading the entity and letting dirty checking
+ * write it, against the single {@code UPDATE ... RETURNING}. With few users most writers hit
+ * the same rows; the entity path then loses updates to version conflicts, counted separately.
+ * Runs on the H2 database of the test profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class UserUpdateBenchmark {
+
+    @Param({"8", "1000"})
+    int users;
+
+    ConfigurableApplicationContext context;
+    UserRepository userRepository;
+    UserMapper userMapper;
+    TransactionTemplate readWrite;
+    long[] ids;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long conflicts;
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("eureka.client.enabled=false", "logging.level.org.hibernate.SQL=info")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<User> saved = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setName("name" + i);
+            user.setEmail(i + "name@mail.ru");
+            user.setAge(i);
+            saved.add(user);
+        }
+        userRepository.saveAll(saved);
+        ids = saved.stream().mapToLong(User::getId).toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserResponse loadAndFlush(Outcomes outcomes) {
+        long id = randomId();
+        String name = "name" + ThreadLocalRandom.current().nextInt();
+        try {
+            return readWrite.execute(status -> {
+                User user = userRepository.findById(id).orElseThrow();
+                user.setName(name);
+                userRepository.flush();
+                return userMapper.toResponse(user);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            outcomes.conflicts++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public UserResponse updateReturning() {
+        long id = randomId();
+        String name = "name" + ThreadLocalRandom.current().nextInt();
+        return readWrite.execute(status ->
+                userRepository.updateReturning(id, name, null, null, new Date(), null).orElseThrow());
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
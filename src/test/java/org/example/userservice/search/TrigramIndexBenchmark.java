@@ -0,0 +1,58 @@
+package org.example.userservice.search;
+
+import org.example.userservice.dto.UserMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TrigramIndexBenchmark {
+
+    private static final String[] FIRST_NAMES = {"john", "jane", "anna", "peter", "maria", "ivan", "olga",
+            "michael", "sarah", "david", "elena", "sergey", "natalia", "alexander", "dmitry", "irina"};
+    private static final String[] DOMAINS = {"mail.ru", "gmail.com", "yandex.ru", "outlook.com"};
+
+    @Param({"100000", "2000000"})
+    int users;
+
+    TrigramIndex names;
+    TrigramIndex emails;
+    long[] query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        names = new TrigramIndex(users);
+        emails = new TrigramIndex(users);
+        for (int id = 0; id < users; id++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = lastName(random);
+            names.put(id, first + " " + last);
+            emails.put(id, first + "." + last + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)]);
+        }
+        query = TrigramIndex.trigrams("jhon smitth");
+    }
+
+    @Benchmark
+    public List<UserMatch> typoSearch() {
+        TopMatches matches = new TopMatches(50);
+        names.search(query, 0.3, matches);
+        emails.search(query, 0.3, matches);
+        return matches.toList();
+    }
+
+    private static String lastName(Random random) {
+        char[] letters = new char[5 + random.nextInt(5)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.userservice.search;
+
+import org.example.userservice.dto.UserMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+    @Test
+    void ranksTypoQueryBySimilarity() {
+        TrigramIndex index = new TrigramIndex(16);
+        index.put(1, "John Smith");
+        index.put(2, "Jane Doe");
+        index.put(3, "Johnny Smithers");
+
+        List<UserMatch> matches = search(index, "jhon smit", 10);
+
+        assertThat(matches).extracting(UserMatch::id).containsExactly(1L, 3L);
+        assertThat(matches.getFirst().score()).isEqualTo(5.0 / 16);
+    }
+
+    @Test
+    void replacesTextOnPut() {
+        TrigramIndex index = new TrigramIndex(16);
+        index.put(1, "John Smith");
+        index.put(1, "Anna Karenina");
+
+        assertThat(search(index, "john smith", 10)).isEmpty();
+        assertThat(search(index, "anna karenina", 10)).extracting(UserMatch::id).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removedUsersDoNotMatch() {
+        TrigramIndex index = new TrigramIndex(16);
+        index.put(1, "john.smith@mail.ru");
+        index.put(2, "john.smith@gmail.com");
+        index.remove(1);
+        index.remove(42);
+
+        assertThat(search(index, "john.smith@mail.ru", 10)).extracting(UserMatch::id).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsBestMatchesWithinLimit() {
+        TrigramIndex index = new TrigramIndex(16);
+        for (int i = 0; i < 5_000; i++) {
+            index.put(i, "user" + i + "@mail.ru");
+        }
+
+        List<UserMatch> matches = search(index, "user4321@mail.ru", 3);
+
+        assertThat(matches).hasSize(3);
+        assertThat(matches.getFirst()).isEqualTo(new UserMatch(4321, 1.0));
+        assertThat(matches.get(1).score()).isLessThanOrEqualTo(matches.getFirst().score());
+        assertThat(matches.get(2).score()).isLessThanOrEqualTo(matches.get(1).score());
+    }
+
+    @Test
+    void splitsWordsAndIgnoresCaseAndRepeats() {
+        assertThat(TrigramIndex.trigrams("Ab, ab")).containsExactly(
+                gram(' ', ' ', 'a'), gram(' ', 'a', 'b'), gram('a', 'b', ' '));
+        assertThat(TrigramIndex.trigrams(" .@ ")).isEmpty();
+    }
+
+    @Test
+    void topMatchesKeepsHigherScoreOfRepeatedId() {
+        TopMatches matches = new TopMatches(2);
+        matches.offer(1, 0.4);
+        matches.offer(2, 0.5);
+        matches.offer(1, 0.9);
+        matches.offer(3, 0.1);
+
+        assertThat(matches.toList()).containsExactly(new UserMatch(1, 0.9), new UserMatch(2, 0.5));
+    }
+
+    private static List<UserMatch> search(TrigramIndex index, String query, int limit) {
+        TopMatches matches = new TopMatches(limit);
+        index.search(TrigramIndex.trigrams(query), 0.2, matches);
+        return matches.toList();
+    }
+
+    private static long gram(char first, char second, char third) {
+        return (long) first << 32 | (long) second << 16 | third;
+    }
+}
@@ -1,25 +1,52 @@
 package org.example.userservice.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.example.userservice.cache.UserCacheConfig;
 import org.example.userservice.domain.User;
 import org.example.userservice.dto.CreateUserRequest;
 import org.example.userservice.dto.UpdateUserRequest;
+import org.example.userservice.dto.UserBatchDeleteResponse;
+import org.example.userservice.dto.UserBatchItem;
+import org.example.userservice.dto.UserBatchResponse;
+import org.example.userservice.dto.UserPage;
 import org.example.userservice.dto.UserResponse;
+import org.example.userservice.dto.UserSearchFilter;
 import org.example.userservice.events.OperationType;
+import org.example.userservice.events.UserChangedEvent;
+import org.example.userservice.events.UserDeletedEvent;
 import org.example.userservice.events.UserEvent;
+import org.example.userservice.events.UserSavedEvent;
 import org.example.userservice.exception.types.ConflictException;
 import org.example.userservice.exception.types.NotFoundException;
+import org.example.userservice.exception.types.PreconditionFailedException;
+import org.example.userservice.filter.EmailFilter;
 import org.example.userservice.mapper.UserMapper;
-import org.example.userservice.messaging.UserKafkaProducer;
+import org.example.userservice.messaging.UserEventOutbox;
+import org.example.userservice.repository.DeletedUser;
 import org.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -35,11 +62,31 @@ class UserServiceTest {
     UserMapper mapper;
 
     @Mock
-    UserKafkaProducer userKafkaProducer;
+    UserEventOutbox userEventOutbox;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    EmailFilter emailFilter;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    CacheManager cacheManager;
+
+    @Mock
+    Cache cache;
 
     @InjectMocks
     UserService service;
 
+    @BeforeEach
+    void emailsMightExist() {
+        lenient().when(emailFilter.mightExist(anyString())).thenReturn(true);
+    }
+
     @Test
     void createThrowsConflictWhenEmailExists() {
         when(userRepository.existsUserByEmail("name@mail.ru")).thenReturn(true);
@@ -51,9 +98,10 @@ class UserServiceTest {
 
     @Test
     void updateThrowsNotFoundWhenUserMissing() {
-        when(userRepository.findById(42L)).thenReturn(Optional.empty());
+        when(userRepository.updateReturning(eq(42L), eq("name"), eq("name@mail.ru"), eq(1), any(), isNull()))
+                .thenReturn(Optional.empty());
         RuntimeException exception = assertThrows(NotFoundException.class,
-                () -> service.updateUser(42L, new UpdateUserRequest("name", "name@mail.ru", 1)));
+                () -> service.updateUser(42L, new UpdateUserRequest("name", "name@mail.ru", 1), null));
         assertThat(exception.getMessage()).isEqualTo("User not found");
     }
 
@@ -63,7 +111,7 @@ class UserServiceTest {
         User user = new User(1L, "name", "name@mail.ru", 123, date, date);
 
         CreateUserRequest createUserRequest = new CreateUserRequest("name", "naME@mail.ru", 1);
-        UserResponse expectedResponse = new UserResponse(1L, "name", "name@mail.ru", 1, date, date);
+        UserResponse expectedResponse = new UserResponse(1L, "name", "name@mail.ru", 1, date, date, 0L);
 
         when(userRepository.existsUserByEmail("name@mail.ru")).thenReturn(false);
         when(mapper.fromCreate(createUserRequest)).thenReturn(user);
@@ -74,104 +122,231 @@ class UserServiceTest {
         UserResponse actualResponse = service.createUser(createUserRequest);
 
         assertThat(actualResponse).isEqualTo(expectedResponse);
-        verify(userKafkaProducer, times(1)).sendUserToKafka(userEventArgumentCaptor.capture());
+        verify(userEventOutbox, times(1)).enqueue(userEventArgumentCaptor.capture(), eq(expectedResponse));
 
         UserEvent actualEvent = userEventArgumentCaptor.getValue();
 
+        assertThat(actualEvent.getUserId()).isEqualTo(1L);
         assertThat(actualEvent.getEmail()).isEqualTo("name@mail.ru");
+        assertThat(actualEvent.getName()).isEqualTo("name");
+        assertThat(actualEvent.getAge()).isEqualTo(123);
         assertThat(actualEvent.getOperation()).isEqualTo(OperationType.CREATE);
         verify(userRepository).existsUserByEmail("name@mail.ru");
         verify(userRepository).save(user);
-        verifyNoMoreInteractions(userKafkaProducer);
+        verifyNoMoreInteractions(userEventOutbox);
+    }
+
+    @Test
+    void createUsersReportsEachItem() {
+        Date date = new Date();
+        UserService batchService = new UserService(userRepository, mapper, userEventOutbox, entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), emailFilter,
+                eventPublisher, cacheManager);
+        List<CreateUserRequest> requests = List.of(
+                new CreateUserRequest("first", "First@mail.ru", 1),
+                new CreateUserRequest("copy", "first@mail.ru", 2),
+                new CreateUserRequest("invalid", "", 3),
+                new CreateUserRequest("taken", "taken@mail.ru", 4));
+        User first = new User(null, "first", "First@mail.ru", 1, null, null);
+        when(userRepository.findExistingEmails(List.of("first@mail.ru", "taken@mail.ru"))).thenReturn(List.of("taken@mail.ru"));
+        when(mapper.fromCreate(requests.get(0))).thenReturn(first);
+        when(mapper.toResponse(first)).thenReturn(new UserResponse(1L, "first", "first@mail.ru", 1, date, date, 0L));
+
+        UserBatchResponse response = batchService.createUsers(requests);
+
+        assertThat(response.created()).isEqualTo(1);
+        assertThat(response.items()).extracting(UserBatchItem::status).containsExactly(
+                UserBatchItem.Status.CREATED, UserBatchItem.Status.CONFLICT,
+                UserBatchItem.Status.INVALID, UserBatchItem.Status.CONFLICT);
+        assertThat(response.items().get(2).error()).startsWith("email:");
+        assertThat(first.getEmail()).isEqualTo("first@mail.ru");
+        verify(userRepository).saveAll(List.of(first));
+        verify(userRepository, never()).existsUserByEmail(anyString());
+
+        ArgumentCaptor<List<UserEvent>> eventsCaptor = ArgumentCaptor.captor();
+        verify(userEventOutbox).enqueueAll(eventsCaptor.capture(),
+                eq(List.of(new UserResponse(1L, "first", "first@mail.ru", 1, date, date, 0L))));
+        assertThat(eventsCaptor.getValue()).extracting(UserEvent::getEmail).containsExactly("first@mail.ru");
     }
 
     @Test
     void readUser() {
         Date date = new Date();
-        User user = new User(1L, "name", "name@mail.ru", 123, date, date);
-        UserResponse userResponse = new UserResponse(1L, "name", "name@mail.ru", 1, date, date);
+        UserResponse userResponse = new UserResponse(1L, "name", "name@mail.ru", 1, date, date, 0L);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(mapper.toResponse(user)).thenReturn(userResponse);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(userResponse));
 
         assertThat(service.readUser(1L)).isEqualTo(userResponse);
+        verifyNoInteractions(mapper);
     }
 
     @Test
     void readNotExistingUser() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> service.readUser(1L));
     }
 
+    @Test
+    void concurrentReadsOfSameUserShareOneQuery() throws Exception {
+        Date date = new Date();
+        UserResponse userResponse = new UserResponse(1L, "name", "name@mail.ru", 1, date, date, 0L);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        when(userRepository.findResponseById(anyLong())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            release.await();
+            return invocation.getArgument(0, Long.class) == 1L ? Optional.of(userResponse) : Optional.empty();
+        });
+
+        List<FutureTask<Object>> reads = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long id = i % 2 + 1;
+            FutureTask<Object> read = new FutureTask<>(() -> {
+                try {
+                    return service.readUser(id);
+                } catch (NotFoundException e) {
+                    return e;
+                }
+            });
+            reads.add(read);
+            threads.add(Thread.ofPlatform().start(read));
+        }
+        // Every reader is either running the query of its id or waiting for it.
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        release.countDown();
+
+        for (int i = 0; i < reads.size(); i++) {
+            Object result = reads.get(i).get();
+            if (i % 2 == 0) {
+                assertThat(result).isEqualTo(userResponse);
+            } else {
+                assertThat(result).isInstanceOf(NotFoundException.class);
+            }
+        }
+        assertThat(queries.get()).isEqualTo(2);
+
+        service.readUser(1L);
+        assertThat(queries.get()).isEqualTo(3);
+    }
+
     @Test
     void updateUser() {
         Date date = new Date();
-        User user = new User(1L, "name", "name@mail.ru", 123, date, date);
         UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "newName@mail.ru", 123);
-        UserResponse expectedResponse = new UserResponse(1L, "name", "newname@mail.ru", 1, date, date);
+        UserResponse expectedResponse = new UserResponse(1L, "name", "newname@mail.ru", 123, date, date, 1L);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(userRepository.existsUserByEmail("newname@mail.ru")).thenReturn(false);
-        when(mapper.toResponse(user)).thenReturn(expectedResponse);
+        when(userRepository.updateReturning(eq(1L), isNull(), eq("newname@mail.ru"), eq(123), any(), isNull()))
+                .thenReturn(Optional.of(expectedResponse));
 
-        UserResponse actualResponse = service.updateUser(1L, updateUserRequest);
+        UserResponse actualResponse = service.updateUser(1L, updateUserRequest, null);
 
         assertThat(actualResponse).isEqualTo(expectedResponse);
-        verify(userRepository).findById(1L);
+        verify(userRepository, never()).findById(anyLong());
         verify(userRepository).existsUserByEmail("newname@mail.ru");
-        verify(mapper).toResponse(user);
+        verify(emailFilter).add("newname@mail.ru");
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L));
+        verify(eventPublisher).publishEvent(new UserSavedEvent(1L, "name", "newname@mail.ru"));
+
+        UserEvent expectedEvent = new UserEvent();
+        expectedEvent.setUserId(1L);
+        expectedEvent.setEmail("newname@mail.ru");
+        expectedEvent.setAge(123);
+        expectedEvent.setVersion(1L);
+        expectedEvent.setOperation(OperationType.UPDATE);
+        verify(userEventOutbox).enqueue(expectedEvent, expectedResponse);
     }
 
     @Test
     void updateUserAllNull() {
         Date date = new Date();
-        User user = new User(1L, "name", "name@mail.ru", 123, date, date);
         UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, null, null);
-        UserResponse expectedResponse = new UserResponse(1L, "name", "name@mail.ru", 123, date, date);
+        UserResponse expectedResponse = new UserResponse(1L, "name", "name@mail.ru", 123, date, date, 0L);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(mapper.toResponse(user)).thenReturn(expectedResponse);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(expectedResponse));
 
-        UserResponse actualResponse = service.updateUser(1L, updateUserRequest);
+        UserResponse actualResponse = service.updateUser(1L, updateUserRequest, null);
 
         assertThat(actualResponse).isEqualTo(expectedResponse);
-        verify(userRepository).findById(1L);
         verify(userRepository, never()).existsUserByEmail(anyString());
-        verify(mapper).applyUpdate(updateUserRequest, user);
-        verify(mapper).toResponse(user);
+        verify(userRepository, never()).updateReturning(any(), any(), any(), any(), any(), any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void updateUserBlankEmail() {
         Date date = new Date();
-        User user = new User(1L, "name", "name@mail.ru", 123, date, date);
         UpdateUserRequest updateUserRequest = new UpdateUserRequest("newName", "", 12);
-        UserResponse expectedResponse = new UserResponse(1L, "newName", "name@mail.ru", 12, date, date);
+        UserResponse expectedResponse = new UserResponse(1L, "newName", "name@mail.ru", 12, date, date, 1L);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(mapper.toResponse(user)).thenReturn(expectedResponse);
+        when(userRepository.updateReturning(eq(1L), eq("newName"), isNull(), eq(12), any(), isNull()))
+                .thenReturn(Optional.of(expectedResponse));
 
-        UserResponse actualResponse = service.updateUser(1L, updateUserRequest);
+        UserResponse actualResponse = service.updateUser(1L, updateUserRequest, null);
 
         assertThat(actualResponse).isEqualTo(expectedResponse);
-        verify(userRepository).findById(1L);
         verify(userRepository, never()).existsUserByEmail(anyString());
-        verify(mapper).applyUpdate(updateUserRequest, user);
-        verify(mapper).toResponse(user);
     }
 
     @Test
     void updateUserDuplicateEmail() {
-        Date date = new Date();
-        User user = new User(1L, "name", "name@mail.ru", 123, date, date);
         UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "newName@mail.ru", 123);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(userRepository.existsUserByEmail("newname@mail.ru")).thenReturn(true);
 
         ConflictException exception = assertThrows(ConflictException.class,
-                () -> service.updateUser(1L, updateUserRequest));
+                () -> service.updateUser(1L, updateUserRequest, null));
         assertThat(exception.getMessage()).isEqualTo("Email already in use");
+        verify(userRepository, never()).updateReturning(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void updateUserPassesExpectedVersions() {
+        Date date = new Date();
+        UpdateUserRequest updateUserRequest = new UpdateUserRequest("newName", null, null);
+        UserResponse expectedResponse = new UserResponse(1L, "newName", "name@mail.ru", 123, date, date, 4L);
+
+        when(userRepository.updateReturning(eq(1L), eq("newName"), isNull(), isNull(), any(), eq(List.of(3L))))
+                .thenReturn(Optional.of(expectedResponse));
+
+        assertThat(service.updateUser(1L, updateUserRequest, List.of(3L))).isEqualTo(expectedResponse);
+    }
+
+    @Test
+    void updateUserWithStaleVersionFails() {
+        UpdateUserRequest updateUserRequest = new UpdateUserRequest("newName", null, null);
+
+        when(userRepository.updateReturning(eq(1L), eq("newName"), isNull(), isNull(), any(), eq(List.of(3L))))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> service.updateUser(1L, updateUserRequest, List.of(3L)));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateMissingUserWithVersionIsNotFound() {
+        UpdateUserRequest updateUserRequest = new UpdateUserRequest("newName", null, null);
+
+        when(userRepository.updateReturning(eq(1L), eq("newName"), isNull(), isNull(), any(), eq(List.of(3L))))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.updateUser(1L, updateUserRequest, List.of(3L)));
+    }
+
+    @Test
+    void readVersion() {
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertThat(service.readVersion(1L)).isEqualTo(3L);
+        verify(userRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -179,16 +354,18 @@ class UserServiceTest {
         Date date = new Date();
         User user = new User(1L, "name", "name@mail.ru", 123, date, date);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.deleteAllByIdReturning(List.of(1L))).thenReturn(List.of(new DeletedUser(1L, "name@mail.ru", 4L)));
 
         ArgumentCaptor<UserEvent> userEventArgumentCaptor = ArgumentCaptor.forClass(UserEvent.class);
         service.removeUserById(1L);
 
-        verify(userKafkaProducer, times(1)).sendUserToKafka(userEventArgumentCaptor.capture());
+        verify(userEventOutbox, times(1)).enqueue(userEventArgumentCaptor.capture());
 
         UserEvent actualEvent = userEventArgumentCaptor.getValue();
         UserEvent expectedEvent = new UserEvent();
+        expectedEvent.setUserId(1L);
         expectedEvent.setEmail("name@mail.ru");
+        expectedEvent.setVersion(4L);
         expectedEvent.setOperation(OperationType.DELETE);
 
 
@@ -198,16 +375,179 @@ class UserServiceTest {
         assertThat(actualEvent).isEqualTo(actualEvent);
         assertThat(actualEvent).isEqualTo(expectedEvent);
 
-        verify(userRepository).findById(1L);
-        verifyNoMoreInteractions(userKafkaProducer);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).deleteById(anyLong());
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L));
+        verify(eventPublisher).publishEvent(new UserDeletedEvent(1L));
+        verifyNoMoreInteractions(userEventOutbox);
     }
 
     @Test
     void removeUserByNotExistingId() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.deleteAllByIdReturning(List.of(1L))).thenReturn(List.of());
 
         assertThrows(NotFoundException.class,
                 () -> service.removeUserById(1L));
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @Test
+    void removeUsersByIdReportsMissingIdsAndBatchesEvents() {
+        when(userRepository.deleteAllByIdReturning(any())).thenReturn(List.of(
+                new DeletedUser(1L, "one@mail.ru", 0L), new DeletedUser(3L, "three@mail.ru", 2L)));
+        when(cacheManager.getCache(UserCacheConfig.USERS)).thenReturn(cache);
+
+        UserBatchDeleteResponse response = service.removeUsersById(List.of(1L, 2L, 3L, 2L));
+
+        assertThat(response.deleted()).isEqualTo(2);
+        assertThat(response.notFound()).containsExactly(2L);
+        verify(userRepository).deleteAllByIdReturning(Set.of(1L, 2L, 3L));
+        ArgumentCaptor<List<UserEvent>> events = ArgumentCaptor.captor();
+        verify(userEventOutbox).enqueueAll(events.capture());
+        assertThat(events.getValue()).extracting(UserEvent::getEmail).containsExactly("one@mail.ru", "three@mail.ru");
+        assertThat(events.getValue()).extracting(UserEvent::getOperation).containsOnly(OperationType.DELETE);
+        assertThat(events.getValue()).extracting(UserEvent::getVersion).containsExactly(0L, 2L);
+        verify(cache).evict(1L);
+        verify(cache).evict(3L);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L));
+        verify(eventPublisher).publishEvent(new UserChangedEvent(3L));
+    }
+
+    @Test
+    void getFirstPageCapsLimitAndReturnsNextCursor() {
+        Date date = new Date();
+        List<UserResponse> users = new ArrayList<>();
+        for (long id = 1; id <= UserService.MAX_PAGE_SIZE + 1; id++) {
+            users.add(new UserResponse(id, "name", id + "name@mail.ru", 1, date, date, 0L));
+        }
+        when(userRepository.findResponses(Limit.of(UserService.MAX_PAGE_SIZE + 1))).thenReturn(users);
+
+        UserPage page = service.getUsers(null, null, 10_000);
+
+        assertThat(page.limit()).isEqualTo(UserService.MAX_PAGE_SIZE);
+        assertThat(page.users()).hasSize(UserService.MAX_PAGE_SIZE);
+        assertThat(page.nextCursor()).isEqualTo((long) UserService.MAX_PAGE_SIZE);
+        assertThat(page.prevCursor()).isNull();
+    }
+
+    @Test
+    void getPageAfterCursor() {
+        Date date = new Date();
+        UserResponse response = new UserResponse(6L, "name", "name@mail.ru", 1, date, date, 0L);
+        when(userRepository.findResponsesAfter(5L, Limit.of(3))).thenReturn(List.of(response));
+
+        UserPage page = service.getUsers(5L, null, 2);
+
+        assertThat(page.users()).containsExactly(response);
+        assertThat(page.nextCursor()).isNull();
+        assertThat(page.prevCursor()).isEqualTo(6L);
+    }
+
+    @Test
+    void getPageBeforeCursorKeepsAscendingOrder() {
+        Date date = new Date();
+        UserResponse user3 = new UserResponse(3L, "name3", "name3@mail.ru", 1, date, date, 0L);
+        UserResponse user2 = new UserResponse(2L, "name2", "name2@mail.ru", 1, date, date, 0L);
+        UserResponse user1 = new UserResponse(1L, "name1", "name1@mail.ru", 1, date, date, 0L);
+        when(userRepository.findResponsesBefore(4L, Limit.of(3))).thenReturn(List.of(user3, user2, user1));
+
+        UserPage page = service.getUsers(null, 4L, 2);
+
+        assertThat(page.users()).extracting(UserResponse::id).containsExactly(2L, 3L);
+        assertThat(page.nextCursor()).isEqualTo(3L);
+        assertThat(page.prevCursor()).isEqualTo(2L);
+    }
+
+    @Test
+    void searchUsersReturnsNextCursorOnlyWhenMoreMatch() {
+        Date date = new Date();
+        UserSearchFilter filter = new UserSearchFilter("name", 18, 25, null, null, null, null, null);
+        List<UserResponse> users = List.of(
+                new UserResponse(3L, "name3", "3name@mail.ru", 20, date, date, 0L),
+                new UserResponse(7L, "name7", "7name@mail.ru", 21, date, date, 0L),
+                new UserResponse(9L, "name9", "9name@mail.ru", 22, date, date, 0L));
+        when(userRepository.search(filter, 1L, 3)).thenReturn(users);
+        when(userRepository.search(filter, 7L, 3)).thenReturn(users.subList(2, 3));
+
+        UserPage page = service.searchUsers(filter, 1L, 2);
+        UserPage lastPage = service.searchUsers(filter, 7L, 2);
+
+        assertThat(page.users()).extracting(UserResponse::id).containsExactly(3L, 7L);
+        assertThat(page.nextCursor()).isEqualTo(7L);
+        assertThat(page.prevCursor()).isNull();
+        assertThat(lastPage.users()).extracting(UserResponse::id).containsExactly(9L);
+        assertThat(lastPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void exportDetachesEachStreamedUser() {
+        Date date = new Date();
+        User user1 = new User(1L, "name1", "name1@mail.ru", 1, date, date);
+        User user2 = new User(2L, "name2", "name2@mail.ru", 2, date, date);
+        UserResponse response1 = new UserResponse(1L, "name1", "name1@mail.ru", 1, date, date, 0L);
+        UserResponse response2 = new UserResponse(2L, "name2", "name2@mail.ru", 2, date, date, 0L);
+        when(userRepository.streamAllOrderById()).thenReturn(Stream.of(user1, user2));
+        when(mapper.toResponse(user1)).thenReturn(response1);
+        when(mapper.toResponse(user2)).thenReturn(response2);
+
+        List<UserResponse> exported = new ArrayList<>();
+        long count = service.exportUsers(exported::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(exported).containsExactly(response1, response2);
+        verify(entityManager).detach(user1);
+        verify(entityManager).detach(user2);
+    }
+
+    @Test
+    void mailUniqueSkipsQueryWhenFilterRulesEmailOut() {
+        when(emailFilter.mightExist("free@mail.ru")).thenReturn(false);
+
+        service.mailUnique(" Free@mail.ru");
+
+        verify(userRepository, never()).existsUserByEmail(anyString());
+    }
+
+    @Test
+    void createUserReportsUniqueViolationAsConflict() {
+        User user = new User(null, "name", "name@mail.ru", 1, null, null);
+        CreateUserRequest request = new CreateUserRequest("name", "name@mail.ru", 1);
+        when(emailFilter.mightExist("name@mail.ru")).thenReturn(false);
+        when(mapper.fromCreate(request)).thenReturn(user);
+        doThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"))
+                .when(userRepository).flush();
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> service.createUser(request));
+
+        assertThat(exception.getMessage()).isEqualTo("Email already in use");
+        verify(emailFilter, never()).add(anyString());
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @Test
+    void createUsersQueriesEmailsTheFilterRulesOut() {
+        UserService batchService = new UserService(userRepository, mapper, userEventOutbox, entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), emailFilter,
+                eventPublisher, cacheManager);
+        CreateUserRequest request = new CreateUserRequest("name", "elsewhere@mail.ru", 1);
+        lenient().when(emailFilter.mightExist(anyString())).thenReturn(false);
+        when(userRepository.findExistingEmails(List.of("elsewhere@mail.ru"))).thenReturn(List.of("elsewhere@mail.ru"));
+
+        UserBatchResponse response = batchService.createUsers(List.of(request));
+
+        assertThat(response.items()).extracting(UserBatchItem::status).containsExactly(UserBatchItem.Status.CONFLICT);
+        verify(userRepository).saveAll(List.of());
+    }
+
+    @Test
+    void createUserAddsEmailToFilter() {
+        User user = new User(1L, "name", "name@mail.ru", 1, new Date(), new Date());
+        CreateUserRequest request = new CreateUserRequest("name", "Name@mail.ru", 1);
+        when(mapper.fromCreate(request)).thenReturn(user);
+
+        service.createUser(request);
+
+        verify(emailFilter).add("name@mail.ru");
     }
 
     @Test